@@ -0,0 +1,174 @@
+package symposium;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+// Traces simulation events through a preallocated ring buffer that a background thread writes out,
+// so the simulating threads only copy a few primitives per event and never format or block on I/O
+public class AsyncSimulationLogger implements SimulationListener, AutoCloseable {
+
+    static final byte MONTH = 1;
+    static final byte REBALANCE = 2;
+    static final byte WITHDRAWAL = 3;
+    static final byte BANKRUPTCY = 4;
+
+    private final int mask;
+    private final byte[] types;
+    private final int[] months;     // year * 12 + month - 1
+    private final double[] stocks;
+    private final double[] fixeds;
+    private final double[] allocations;
+    private final double[] values;  // withdrawal amount or debt depending on the event
+
+    // Sequence claimed by producers, sequence published per slot, and sequence already written out
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLongArray published;
+    private final AtomicLong consumed = new AtomicLong();
+
+    private final boolean binary;
+    private final DataOutputStream out;
+    private final Thread writerThread;
+    private volatile boolean running = true;
+    private IOException failure;
+
+    // Capacity is rounded up to a power of two, producers wait when the buffer is full
+    public AsyncSimulationLogger(OutputStream output, boolean binary, int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.types = new byte[size];
+        this.months = new int[size];
+        this.stocks = new double[size];
+        this.fixeds = new double[size];
+        this.allocations = new double[size];
+        this.values = new double[size];
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            published.set(i, -1);
+        }
+
+        this.binary = binary;
+        this.out = new DataOutputStream(new BufferedOutputStream(output, 1 << 16));
+        this.writerThread = new Thread(this::drainLoop, "simulation-logger");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    @Override
+    public void monthStepped(ParentSimulator sim) {
+        publish(MONTH, sim, 0);
+    }
+
+    @Override
+    public void rebalanced(ParentSimulator sim) {
+        publish(REBALANCE, sim, 0);
+    }
+
+    @Override
+    public void withdrawal(ParentSimulator sim, double amount) {
+        publish(WITHDRAWAL, sim, amount);
+    }
+
+    @Override
+    public void bankruptcy(ParentSimulator sim, double debt) {
+        publish(BANKRUPTCY, sim, debt);
+    }
+
+    // Copy the event into the next free slot and mark it as ready for the writer thread
+    private void publish(byte type, ParentSimulator sim, double value) {
+        long sequence = claimed.getAndIncrement();
+        while (sequence - consumed.get() > mask) {
+            LockSupport.parkNanos(10_000);
+        }
+
+        int slot = (int) sequence & mask;
+        types[slot] = type;
+        months[slot] = sim.startDate.getYear() * 12 + sim.startDate.getMonthValue() - 1 + sim.currentMonth;
+        stocks[slot] = sim.stockBalance;
+        fixeds[slot] = sim.fixedBalance;
+        allocations[slot] = sim.allocation;
+        values[slot] = value;
+        published.lazySet(slot, sequence);
+    }
+
+    private void drainLoop() {
+        long next = 0;
+        try {
+            while (true) {
+                int slot = (int) next & mask;
+                if (published.get(slot) == next) {
+                    write(slot);
+                    next++;
+                    consumed.lazySet(next);
+                } else if (running || next < claimed.get()) {
+                    out.flush();
+                    LockSupport.parkNanos(50_000);
+                } else {
+                    break;
+                }
+            }
+            out.flush();
+        } catch (IOException e) {
+            failure = e;
+            // Keep releasing slots so producers never wait on a dead writer
+            while (running || next < claimed.get()) {
+                if (published.get((int) next & mask) == next) {
+                    next++;
+                    consumed.lazySet(next);
+                } else {
+                    LockSupport.parkNanos(50_000);
+                }
+            }
+        }
+    }
+
+    private void write(int slot) throws IOException {
+        if (binary) {
+            out.writeByte(types[slot]);
+            out.writeInt(months[slot]);
+            out.writeDouble(stocks[slot]);
+            out.writeDouble(fixeds[slot]);
+            out.writeDouble(allocations[slot]);
+            out.writeDouble(values[slot]);
+            return;
+        }
+
+        String event;
+        switch (types[slot]) {
+            case MONTH:
+                event = "Month";
+                break;
+            case REBALANCE:
+                event = "Rebalanced";
+                break;
+            case WITHDRAWAL:
+                event = "Withdrawal";
+                break;
+            default:
+                event = "Bankruptcy";
+                break;
+        }
+        int month = months[slot];
+        out.writeBytes(String.format("%02d/%d | %s | Stock: %.2f | Fixed: %.2f | Allocation: %.2f | Amount: %.2f%n",
+                month % 12 + 1, month / 12, event, stocks[slot], fixeds[slot], allocations[slot] * 100, values[slot]));
+    }
+
+    // Writes out everything still in the buffer and stops the writer thread
+    @Override
+    public void close() throws IOException {
+        running = false;
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        out.close();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
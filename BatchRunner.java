@@ -0,0 +1,379 @@
+package symposium;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Runs client plans from a CSV or JSON Lines file without any prompts, one client per line, and streams
+// one result line per client in input order.
+//
+// Fields use the same units as the interactive prompts (allocations and withdrawal in percent, dates
+// as MM/yyyy). mode is invest, withdraw or both:
+//   invest    start_amount, monthly_contribution, start_alloc, end_alloc, fixed_yield, annual_increase,
+//             start_date, end_date
+//   withdraw  start_amount, withdrawal_percent, start_alloc, end_alloc, fixed_yield, annual_increase,
+//             start_date, end_date
+//   both      the invest fields, then withdraw_end_date, withdrawal_percent, withdraw_start_alloc,
+//             withdraw_end_alloc and withdraw_increase for a withdrawal that continues from the
+//             stock and fixed income balances at end_date, like choice 3 of the interactive menu
+// id is optional and copied to the output. CSV input takes the field names from its header row.
+//
+// The input is read a line at a time and every line becomes a task in the executor. Finished lines
+// wait in a queue of at most window entries for a writer thread that writes them in order, so the
+// reader blocks when workers or the writer fall behind and memory does not depend on the input size.
+// A line that cannot be run gets an error in its result instead of stopping the batch. Runs go through
+// the shared ResultCache, so clients with the same plan are only simulated once.
+public class BatchRunner {
+
+    static final int DEFAULT_WINDOW = 4096;
+    static final String CSV_HEADER = "id,mode,invest_final,total_contributed,withdraw_final,total_withdrawn,bankrupt,error";
+
+    private final ExperimentExecutor executor;
+    private final int window;
+
+    public BatchRunner(ExperimentExecutor executor, int window) {
+        this.executor = executor;
+        this.window = Math.max(1, window);
+    }
+
+    // Arguments: <input.csv | input.jsonl> <output.csv | output.jsonl> [parallelism]
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            System.out.println("Usage: --batch <input.csv | input.jsonl> <output.csv | output.jsonl> [parallelism]");
+            return;
+        }
+        int parallelism = args.length > 2 ? Integer.parseInt(args[2]) : ExperimentExecutor.defaultParallelism();
+        try (ExperimentExecutor executor = new ExperimentExecutor(parallelism);
+             BufferedReader in = Files.newBufferedReader(Paths.get(args[0]));
+             Writer out = Files.newBufferedWriter(Paths.get(args[1]))) {
+            long rows = new BatchRunner(executor, DEFAULT_WINDOW).run(in, out, isJson(args[0]), isJson(args[1]));
+            System.out.println("Wrote " + rows + " results to " + args[1]);
+        }
+    }
+
+    private static boolean isJson(String file) {
+        return file.endsWith(".jsonl") || file.endsWith(".json");
+    }
+
+    // Returns the number of clients written
+    public long run(BufferedReader in, Writer out, boolean jsonInput, boolean jsonOutput) throws IOException, InterruptedException {
+        BlockingQueue<Future<String>> pending = new ArrayBlockingQueue<>(window);
+        Future<String> end = CompletableFuture.completedFuture(null);
+        AtomicReference<Throwable> writeError = new AtomicReference<>();
+        long[] written = new long[1];
+
+        Thread writer = new Thread(() -> {
+            try {
+                if (!jsonOutput) {
+                    out.write(CSV_HEADER);
+                    out.write('\n');
+                }
+                while (true) {
+                    Future<String> next = pending.take();
+                    if (next == end) {
+                        break;
+                    }
+                    out.write(next.get());
+                    written[0]++;
+                }
+                out.flush();
+            } catch (InterruptedException | ExecutionException | IOException | RuntimeException e) {
+                writeError.set(e);
+                // Keep draining so the reader never blocks on a writer that stopped
+                try {
+                    while (pending.take() != end) {
+                        // Discard, the batch has already failed
+                    }
+                } catch (InterruptedException stopped) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, "batch-writer");
+        writer.start();
+
+        try {
+            String[] header = null;
+            long lineNumber = 0;
+            String line;
+            while ((line = in.readLine()) != null && writeError.get() == null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (!jsonInput && header == null) {
+                    header = splitCsv(line);
+                    continue;
+                }
+                String text = line;
+                String[] names = header;
+                long number = lineNumber;
+                pending.put(executor.submit(() -> runLine(text, names, number).format(jsonOutput)));
+            }
+        } finally {
+            pending.put(end);
+            writer.join();
+        }
+
+        if (writeError.get() != null) {
+            throw new IOException("Writing batch results failed", writeError.get());
+        }
+        return written[0];
+    }
+
+    // Runs one client. lineNumber is used as the default id and in error messages, 0 for a lone request.
+    static Outcome runLine(String line, String[] header, long lineNumber) {
+        String where = lineNumber > 0 ? "line " + lineNumber + ": " : "";
+        String defaultId = lineNumber > 0 ? Long.toString(lineNumber) : "";
+        Map<String, String> fields;
+        try {
+            fields = header == null ? SimpleJson.parseObject(line) : csvFields(header, line);
+        } catch (RuntimeException e) {
+            return new Outcome(defaultId, "", null, null, where + message(e));
+        }
+        String id = fields.getOrDefault("id", defaultId);
+        String mode = fields.getOrDefault("mode", "");
+        try {
+            switch (mode) {
+                case "invest": {
+                    SimulationResult invest = finite(ResultCache.run(investConfig(fields)));
+                    return new Outcome(id, mode, invest, null, null);
+                }
+                case "withdraw": {
+                    SimulationConfig withdrawConfig = SimulationConfig.withdraw(number(fields, "start_amount"), withdrawalPercent(fields) / 100,
+                            number(fields, "start_alloc") / 100, number(fields, "end_alloc") / 100, number(fields, "fixed_yield"),
+                            number(fields, "annual_increase"), date(fields, "start_date"), date(fields, "end_date"));
+                    checkDates(withdrawConfig);
+                    SimulationResult withdraw = finite(ResultCache.run(withdrawConfig));
+                    return new Outcome(id, mode, null, withdraw, null);
+                }
+                case "both": {
+                    SimulationConfig investConfig = investConfig(fields);
+                    SimulationConfig withdrawConfig = SimulationConfig.withdraw(0, withdrawalPercent(fields) / 100,
+                            number(fields, "withdraw_start_alloc") / 100, number(fields, "withdraw_end_alloc") / 100,
+                            investConfig.getFixedYield(), number(fields, "withdraw_increase"),
+                            investConfig.getEndDate(), date(fields, "withdraw_end_date"));
+                    checkDates(withdrawConfig);
+
+                    // The withdrawal continues from the accumulation's balances, so this pair is not cached per config
+                    LifecycleSimulator.Result lifecycle = new LifecycleSimulator(investConfig, List.of(withdrawConfig)).runOnce();
+                    SimulationResult invest = finite(new SimulationResult(lifecycle.getRetirementBalance(0), lifecycle.getTotalContributed(0), false));
+                    SimulationResult withdraw = finite(new SimulationResult(lifecycle.getFinalBalance(0, 0), lifecycle.getTotalWithdrawn(0, 0),
+                            lifecycle.isBankrupt(0, 0)));
+                    return new Outcome(id, mode, invest, withdraw, null);
+                }
+                default:
+                    throw new IllegalArgumentException("mode must be invest, withdraw or both");
+            }
+        } catch (RuntimeException e) {
+            // Any failure of one client becomes its error line, the rest of the batch goes on
+            return new Outcome(id, mode, null, null, where + message(e));
+        }
+    }
+
+    private static String message(RuntimeException e) {
+        return e.getMessage() != null ? e.getMessage() : e.toString();
+    }
+
+    private static SimulationConfig investConfig(Map<String, String> fields) {
+        SimulationConfig config = SimulationConfig.invest(number(fields, "start_amount"), number(fields, "monthly_contribution"),
+                number(fields, "start_alloc") / 100, number(fields, "end_alloc") / 100, number(fields, "fixed_yield"),
+                number(fields, "annual_increase"), date(fields, "start_date"), date(fields, "end_date"));
+        checkDates(config);
+        return config;
+    }
+
+    // Same bounds as the interactive prompts, so a batch never runs past the stock data
+    private static void checkDates(SimulationConfig config) {
+        StockData stockData = StockData.getDefault();
+        if (config.getStartDate().isBefore(stockData.getFirstMonth()) || config.getEndDate().isAfter(stockData.getLastMonth())) {
+            throw new IllegalArgumentException("dates must be between " + stockData.getFirstMonth().format(ParentSimulator.formatter)
+                    + " and " + stockData.getLastMonth().format(ParentSimulator.formatter));
+        }
+        // A zero-length window has no allocation path (0 / 0 months)
+        if (!config.getEndDate().isAfter(config.getStartDate())) {
+            throw new IllegalArgumentException("end date must be after the start date");
+        }
+    }
+
+    // JSON has no NaN or Infinity, so a result that overflowed is reported as an error instead
+    private static SimulationResult finite(SimulationResult result) {
+        if (!Double.isFinite(result.getFinalAmount()) || !Double.isFinite(result.getTotalFlow())) {
+            throw new IllegalArgumentException("result is too large to represent");
+        }
+        return result;
+    }
+
+    private static double number(Map<String, String> fields, String name) {
+        String value = fields.get(name);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException(name + " missing");
+        }
+        double number;
+        try {
+            number = Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " is not a number");
+        }
+        if (!Double.isFinite(number)) {
+            throw new IllegalArgumentException(name + " must be a finite number");
+        }
+        return number;
+    }
+
+    // Same range the interactive prompt accepts
+    private static double withdrawalPercent(Map<String, String> fields) {
+        double percent = number(fields, "withdrawal_percent");
+        if (percent < 0 || percent >= 100) {
+            throw new IllegalArgumentException("withdrawal_percent must be between 0 and 100");
+        }
+        return percent;
+    }
+
+    private static YearMonth date(Map<String, String> fields, String name) {
+        String value = fields.get(name);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException(name + " missing");
+        }
+        return YearMonth.parse(value.trim(), ParentSimulator.formatter);
+    }
+
+    private static Map<String, String> csvFields(String[] header, String line) {
+        String[] values = splitCsv(line);
+        if (values.length > header.length) {
+            throw new IllegalArgumentException("more fields than the header has");
+        }
+        Map<String, String> fields = new HashMap<>();
+        for (int i = 0; i < values.length; i++) {
+            fields.put(header[i], values[i]);
+        }
+        return fields;
+    }
+
+    // Splits one CSV line the way csv() writes it: a field in quotes can hold commas and "" for a quote.
+    // Whitespace around a field is dropped, inside the quotes it is kept.
+    static String[] splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        int i = 0;
+        while (true) {
+            while (i < line.length() && line.charAt(i) <= ' ') {
+                i++;
+            }
+            if (i < line.length() && line.charAt(i) == '"') {
+                i++;
+                while (true) {
+                    if (i == line.length()) {
+                        throw new IllegalArgumentException("unterminated quoted field");
+                    }
+                    char c = line.charAt(i++);
+                    if (c != '"') {
+                        field.append(c);
+                    } else if (i < line.length() && line.charAt(i) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+                while (i < line.length() && line.charAt(i) <= ' ') {
+                    i++;
+                }
+                if (i < line.length() && line.charAt(i) != ',') {
+                    throw new IllegalArgumentException("text after a quoted field");
+                }
+            } else {
+                int end = line.indexOf(',', i);
+                if (end < 0) {
+                    end = line.length();
+                }
+                field.append(line.substring(i, end).trim());
+                i = end;
+            }
+            fields.add(field.toString());
+            field.setLength(0);
+            if (i == line.length()) {
+                return fields.toArray(new String[0]);
+            }
+            i++; // The comma
+        }
+    }
+
+    // Quotes a CSV value when it needs it
+    private static String csv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    // Result of one client, invest and withdraw are null for the parts that did not run
+    static class Outcome {
+        final String id;
+        final String mode;
+        final SimulationResult invest;
+        final SimulationResult withdraw;
+        final String error;
+
+        Outcome(String id, String mode, SimulationResult invest, SimulationResult withdraw, String error) {
+            this.id = id;
+            this.mode = mode;
+            this.invest = invest;
+            this.withdraw = withdraw;
+            this.error = error;
+        }
+
+        boolean failed() {
+            return error != null;
+        }
+
+        String format(boolean json) {
+            StringBuilder out = new StringBuilder(128);
+            if (json) {
+                out.append("{\"id\":");
+                SimpleJson.appendString(out, id);
+                out.append(",\"mode\":");
+                SimpleJson.appendString(out, mode);
+                if (invest != null) {
+                    out.append(String.format(",\"invest_final\":%.2f,\"total_contributed\":%.2f", invest.getFinalAmount(), invest.getTotalFlow()));
+                }
+                if (withdraw != null) {
+                    out.append(String.format(",\"withdraw_final\":%.2f,\"total_withdrawn\":%.2f,\"bankrupt\":%b",
+                            withdraw.getFinalAmount(), withdraw.getTotalFlow(), withdraw.isBankrupt()));
+                }
+                if (error != null) {
+                    out.append(",\"error\":");
+                    SimpleJson.appendString(out, error);
+                }
+                out.append("}\n");
+            } else {
+                out.append(csv(id)).append(',').append(csv(mode)).append(',');
+                if (invest != null) {
+                    out.append(String.format("%.2f,%.2f", invest.getFinalAmount(), invest.getTotalFlow()));
+                } else {
+                    out.append(',');
+                }
+                out.append(',');
+                if (withdraw != null) {
+                    out.append(String.format("%.2f,%.2f,%b", withdraw.getFinalAmount(), withdraw.getTotalFlow(), withdraw.isBankrupt()));
+                } else {
+                    out.append(",,");
+                }
+                out.append(',').append(error == null ? "" : csv(error)).append('\n');
+            }
+            return out.toString();
+        }
+    }
+}
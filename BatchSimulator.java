@@ -0,0 +1,289 @@
+package symposium;
+
+import java.time.YearMonth;
+import java.util.Arrays;
+
+// Runs many portfolios at once with every field stored as a primitive array (one slot per lane).
+// The batch walks the stock data one calendar month at a time, so each month's return, January
+// check and dividend check are done once and shared by every lane that is active in that month.
+// Every lane gives exactly the same result as the matching InvestSimulator/WithdrawSimulator run.
+public class BatchSimulator {
+
+    private final boolean withdrawing;
+    private final StockData stockData;
+    private final double dividendGrowth;
+    // Take the dividend and fixed income yield from the stock data's series, same as ParentSimulator.historicalRates
+    private boolean historicalDividends = false;
+    private boolean historicalBonds = false;
+
+    private int lanes = 0;
+
+    double[] stockBalance;
+    double[] fixedBalance;
+    double[] allocation;
+    double[] startAlloc;
+    double[] endAlloc;
+    double[] flow;          // Monthly contribution, or monthly withdrawal rate when withdrawing
+    double[] flowGrowth;    // Yearly multiplier applied to the flow every January
+    double[] fixedGrowth;   // Monthly multiplier of the fixed income balance
+    double[] flowTotal;     // Total contribution or total withdrawn
+    int[] startIndex;
+    int[] totalMonths;
+    boolean[] bankrupt;
+
+    public BatchSimulator(boolean withdrawing, int expectedLanes) {
+        this(withdrawing, expectedLanes, StockData.getDefault());
+    }
+
+    public BatchSimulator(boolean withdrawing, int expectedLanes, StockData stockData) {
+        this.withdrawing = withdrawing;
+        this.stockData = stockData;
+        this.dividendGrowth = 1 + ParentSimulator.DEFAULT_DIVIDEND / 4;
+        allocate(Math.max(1, expectedLanes));
+    }
+
+    private void allocate(int capacity) {
+        stockBalance = grow(stockBalance, capacity);
+        fixedBalance = grow(fixedBalance, capacity);
+        allocation = grow(allocation, capacity);
+        startAlloc = grow(startAlloc, capacity);
+        endAlloc = grow(endAlloc, capacity);
+        flow = grow(flow, capacity);
+        flowGrowth = grow(flowGrowth, capacity);
+        fixedGrowth = grow(fixedGrowth, capacity);
+        flowTotal = grow(flowTotal, capacity);
+        startIndex = startIndex == null ? new int[capacity] : Arrays.copyOf(startIndex, capacity);
+        totalMonths = totalMonths == null ? new int[capacity] : Arrays.copyOf(totalMonths, capacity);
+        bankrupt = bankrupt == null ? new boolean[capacity] : Arrays.copyOf(bankrupt, capacity);
+    }
+
+    private static double[] grow(double[] array, int capacity) {
+        return array == null ? new double[capacity] : Arrays.copyOf(array, capacity);
+    }
+
+    public void setHistoricalRates(boolean historicalRates) {
+        this.historicalDividends = historicalRates && stockData.hasDividendYields();
+        this.historicalBonds = historicalRates && stockData.hasBondYields();
+    }
+
+    // Adds a portfolio with the same parameters as the simulator constructors and returns its lane.
+    // flow is the monthly contribution, or the annual withdrawal percentage when withdrawing.
+    public int add(double startAmount, double flow, double startAlloc, double endAlloc,
+                   double fixedYield, double annualIncrease, YearMonth startDate, YearMonth endDate) {
+        if (lanes == stockBalance.length) {
+            allocate(lanes * 2);
+        }
+
+        int lane = lanes++;
+        this.stockBalance[lane] = startAmount * startAlloc;
+        this.fixedBalance[lane] = startAmount * (1 - startAlloc);
+        this.allocation[lane] = startAlloc;
+        this.startAlloc[lane] = startAlloc;
+        this.endAlloc[lane] = endAlloc;
+        this.flow[lane] = withdrawing ? flow / 12 : flow;
+        this.flowGrowth[lane] = 1 + annualIncrease / 100;
+        this.fixedGrowth[lane] = 1 + (fixedYield / 12 / 100);
+        this.flowTotal[lane] = 0;
+        this.startIndex[lane] = stockData.indexOf(startDate);
+        this.totalMonths[lane] = (endDate.getYear() - startDate.getYear()) * 12 + endDate.getMonthValue() - startDate.getMonthValue();
+        this.bankrupt[lane] = false;
+        return lane;
+    }
+
+    // Run every lane from its start month to its end month
+    public void runSimulation() {
+        if (lanes == 0) {
+            return;
+        }
+
+        int first = Integer.MAX_VALUE;
+        int last = Integer.MIN_VALUE;
+        for (int l = 0; l < lanes; l++) {
+            first = Math.min(first, startIndex[l]);
+            last = Math.max(last, startIndex[l] + totalMonths[l]);
+        }
+
+        boolean[] done = new boolean[lanes];
+        for (int index = first; index <= last; index++) {
+            boolean hasData = stockData.hasPercentChange(index);
+            double growth = hasData ? 1 + stockData.getPercentChange(index) / 100 : 0;
+            int month = stockData.calendarMonth(index);
+            boolean january = month == 1;
+            boolean quarter = month % 3 == 0;
+            double dividend = historicalDividends && hasData ? 1 + stockData.getDividendYield(index) / 100 / 4 : dividendGrowth;
+            double bondGrowth = historicalBonds && hasData ? 1 + (stockData.getBondYield(index) / 12 / 100) : 0;
+
+            for (int l = 0; l < lanes; l++) {
+                int start = startIndex[l];
+                if (done[l] || index < start) {
+                    continue;
+                }
+
+                if (index == start) {
+                    startLane(l);
+                } else if (!hasData) {
+                    // Stock data not available for the specified months
+                    finishLane(l);
+                    done[l] = true;
+                    continue;
+                } else if (withdrawing) {
+                    if (!stepWithdraw(l, growth, january, quarter, dividend, bondGrowth, index - start)) {
+                        finishLane(l);
+                        done[l] = true;
+                        continue;
+                    }
+                } else {
+                    stepInvest(l, growth, january, quarter, dividend, bondGrowth, index - start);
+                }
+
+                if (index == start + totalMonths[l]) {
+                    finishLane(l);
+                    done[l] = true;
+                }
+            }
+        }
+    }
+
+    // Same as adjustAllocation, rebalance and the first contribution/withdrawal of startSimulation
+    private void startLane(int l) {
+        double progress = 0.0 / totalMonths[l];
+        double alloc = startAlloc[l] + progress * (endAlloc[l] - startAlloc[l]);
+        double total = stockBalance[l] + fixedBalance[l];
+        double stock = total * alloc;
+        double fixed = total * (1 - alloc);
+
+        if (withdrawing) {
+            double sum = stock + fixed;
+            double realTimeAllocation = stock / sum;
+            double realTimeWithdrawal = flow[l] * sum;
+            if (realTimeAllocation < alloc)
+                fixed -= realTimeWithdrawal;
+            else if (realTimeAllocation > alloc)
+                stock -= realTimeWithdrawal;
+            else {
+                fixed -= realTimeWithdrawal * (1 - alloc);
+                stock -= realTimeWithdrawal * alloc;
+            }
+            flowTotal[l] += realTimeWithdrawal;
+        } else {
+            stock += flow[l] * alloc;
+            fixed += flow[l] * (1 - alloc);
+        }
+
+        allocation[l] = alloc;
+        stockBalance[l] = stock;
+        fixedBalance[l] = fixed;
+    }
+
+    // Same arithmetic as InvestSimulator.stepMonth
+    private void stepInvest(int l, double growth, boolean january, boolean quarter, double dividendGrowth,
+                            double bondGrowth, int currentMonth) {
+        double contribution = flow[l];
+        double alloc = allocation[l];
+        flowTotal[l] += contribution;
+
+        double stock = stockBalance[l] * growth;
+        double fixed = fixedBalance[l];
+
+        if (january) {
+            double progress = (double) currentMonth / totalMonths[l];
+            alloc = startAlloc[l] + progress * (endAlloc[l] - startAlloc[l]);
+            double total = stock + fixed;
+            stock = total * alloc;
+            fixed = total * (1 - alloc);
+            contribution *= flowGrowth[l];
+            flow[l] = contribution;
+            allocation[l] = alloc;
+        }
+
+        if (quarter) {
+            stock *= dividendGrowth;
+        }
+        fixed *= historicalBonds ? bondGrowth : fixedGrowth[l];
+        stock += contribution * alloc;
+        fixed += contribution * (1 - alloc);
+
+        stockBalance[l] = stock;
+        fixedBalance[l] = fixed;
+    }
+
+    // Same arithmetic as WithdrawSimulator.stepMonth, returns false when the lane went bankrupt
+    private boolean stepWithdraw(int l, double growth, boolean january, boolean quarter, double dividendGrowth,
+                                 double bondGrowth, int currentMonth) {
+        double alloc = allocation[l];
+        double stock = stockBalance[l] * growth;
+        double fixed = fixedBalance[l];
+
+        if (january) {
+            double progress = (double) currentMonth / totalMonths[l];
+            alloc = startAlloc[l] + progress * (endAlloc[l] - startAlloc[l]);
+            double total = stock + fixed;
+            stock = total * alloc;
+            fixed = total * (1 - alloc);
+            flow[l] *= flowGrowth[l];
+            allocation[l] = alloc;
+        }
+
+        if (quarter) {
+            stock *= dividendGrowth;
+        }
+        fixed *= historicalBonds ? bondGrowth : fixedGrowth[l];
+
+        double total = stock + fixed;
+        double realTimeAllocation = stock / total;
+        double realTimeWithdrawal = flow[l] * total;
+        if (realTimeAllocation < alloc)
+            fixed -= realTimeWithdrawal;
+        else if (realTimeAllocation > alloc)
+            stock -= realTimeWithdrawal;
+        else {
+            fixed -= realTimeWithdrawal * (1 - alloc);
+            stock -= realTimeWithdrawal * alloc;
+        }
+        flowTotal[l] += realTimeWithdrawal;
+
+        // Emergency rebalance, and bankruptcy when both sides are still in debt
+        if (fixed < 0 || stock < 0) {
+            double sum = stock + fixed;
+            stock = sum * alloc;
+            fixed = sum * (1 - alloc);
+            if (fixed < 0 && stock < 0) {
+                flowTotal[l] -= -1 * (fixed + stock);
+                stockBalance[l] = 0;
+                fixedBalance[l] = 0;
+                bankrupt[l] = true;
+                return false;
+            }
+        }
+
+        stockBalance[l] = stock;
+        fixedBalance[l] = fixed;
+        return true;
+    }
+
+    // Rebalance neatly for the end
+    private void finishLane(int l) {
+        double alloc = endAlloc[l];
+        double total = stockBalance[l] + fixedBalance[l];
+        stockBalance[l] = total * alloc;
+        fixedBalance[l] = total * (1 - alloc);
+        allocation[l] = alloc;
+    }
+
+    public int size() {
+        return lanes;
+    }
+
+    public double getFinalAmount(int lane) {
+        return stockBalance[lane] + fixedBalance[lane];
+    }
+
+    // Total contribution, or total withdrawn when withdrawing
+    public double getTotalFlow(int lane) {
+        return flowTotal[lane];
+    }
+
+    public boolean isBankrupt(int lane) {
+        return bankrupt[lane];
+    }
+}
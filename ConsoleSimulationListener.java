@@ -0,0 +1,28 @@
+package symposium;
+
+// Prints simulation events to the console the way the interactive simulator always has
+public class ConsoleSimulationListener implements SimulationListener {
+
+    private final boolean printMonths;
+
+    public ConsoleSimulationListener(boolean printMonths) {
+        this.printMonths = printMonths;
+    }
+
+    @Override
+    public void monthStepped(ParentSimulator sim) {
+        if (printMonths) {
+            sim.printValues();
+        }
+    }
+
+    @Override
+    public void rebalanced(ParentSimulator sim) {
+        System.out.println("Rebalanced at " + sim.getCurrentDate().format(ParentSimulator.formatter));
+    }
+
+    @Override
+    public void bankruptcy(ParentSimulator sim, double debt) {
+        System.out.println("Out of money!");
+    }
+}
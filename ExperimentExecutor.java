@@ -0,0 +1,89 @@
+package symposium;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+// Fans independent simulator runs out over a fork/join pool and hands the results back in task order,
+// so reductions done over the returned list are the same as the sequential loop's
+public class ExperimentExecutor implements AutoCloseable {
+
+    private final ForkJoinPool pool;
+
+    public ExperimentExecutor(int parallelism) {
+        this.pool = new ForkJoinPool(Math.max(1, parallelism));
+    }
+
+    // Parallelism from -Dsymposium.parallelism, otherwise one worker per core
+    public static int defaultParallelism() {
+        return Integer.getInteger("symposium.parallelism", Runtime.getRuntime().availableProcessors());
+    }
+
+    // Parallelism from the first program argument when one is given
+    public static int parallelismFromArgs(String[] args) {
+        return args.length > 0 ? Integer.parseInt(args[0]) : defaultParallelism();
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    // Runs task(0) .. task(count - 1) in parallel, result i is always at index i
+    public <T> List<T> map(int count, IntFunction<T> task) {
+        List<ForkJoinTask<T>> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            tasks.add(ForkJoinTask.adapt(() -> task.apply(index)));
+        }
+
+        // Nested calls from a worker fork into the same pool instead of blocking a thread on it
+        if (ForkJoinTask.getPool() == pool) {
+            ForkJoinTask.invokeAll(tasks);
+        } else {
+            pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+        }
+
+        List<T> results = new ArrayList<>(count);
+        for (ForkJoinTask<T> t : tasks) {
+            results.add(t.join());
+        }
+        return results;
+    }
+
+    // Runs each supplier in parallel, results come back in list order
+    public <T> List<T> invokeAll(List<Supplier<T>> suppliers) {
+        return map(suppliers.size(), i -> suppliers.get(i).get());
+    }
+
+    // Starts one task in the pool, for callers that stream work in instead of handing over a whole batch
+    public <T> ForkJoinTask<T> submit(Callable<T> task) {
+        return pool.submit(task);
+    }
+
+    // Runs the simulation and returns the simulator so results can be read off it
+    public static <S extends ParentSimulator> S simulate(S sim) {
+        sim.runSimulation();
+        return sim;
+    }
+
+    // Runs the simulation and keeps only its result, so the simulator can go back to its pool
+    public static SimulationResult run(ParentSimulator sim) {
+        sim.runSimulation();
+        return SimulationResult.of(sim);
+    }
+
+    // One simulator per worker thread, re-armed with reset() for every run instead of built anew.
+    // A run never forks, so a worker is done with its simulator before it picks up another task.
+    public static <S extends ParentSimulator> ThreadLocal<S> perThread(Supplier<S> factory) {
+        return ThreadLocal.withInitial(factory);
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,241 @@
+package symposium;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+// Declarative description of an experiment: sections of rows, where every row is a labelled group of
+// runs whose results are averaged. Running it expands every row, simulates each distinct config only
+// once with all of them in parallel, and writes the rows in the order they were declared.
+//
+//   ExperimentSpec spec = ExperimentSpec.builder(base)
+//           .section("Testing Allocation:")
+//           .sweep(new double[]{100, 80, 60}, (config, percent) -> config.withAllocation(percent / 100, percent / 100))
+//           .build();
+//
+// A sweep row runs the base config with the value applied over the default windows. row() adds a single
+// row with any windows, for sections that are not a plain sweep.
+public class ExperimentSpec {
+
+    private final List<Section> sections;
+
+    private ExperimentSpec(List<Section> sections) {
+        this.sections = sections;
+    }
+
+    // base is the config every row starts from, its dates are replaced by each row's windows
+    public static Builder builder(SimulationConfig base) {
+        return new Builder(base);
+    }
+
+    // count windows of the given length in years, starting in startMonth of consecutive years
+    public static List<YearMonth[]> rollingWindows(YearMonth startMonth, int count, int years) {
+        List<YearMonth[]> windows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            windows.add(new YearMonth[]{startMonth.plusYears(i), startMonth.plusYears(i + years)});
+        }
+        return windows;
+    }
+
+    // Number of yearly windows from startMonth that end by lastMonth
+    public static int windowsEndingBy(YearMonth startMonth, int years, YearMonth lastMonth) {
+        int lastEndYear = lastMonth.getMonthValue() >= startMonth.getMonthValue() ? lastMonth.getYear() : lastMonth.getYear() - 1;
+        return Math.max(0, lastEndYear - years - startMonth.getYear() + 1);
+    }
+
+    public List<Section> getSections() {
+        return Collections.unmodifiableList(sections);
+    }
+
+    // Number of runs the rows ask for, counting repeats
+    public int getRunCount() {
+        int runs = 0;
+        for (Section section : sections) {
+            for (Row row : section.rows) {
+                runs += row.runs.size();
+            }
+        }
+        return runs;
+    }
+
+    // Distinct configs in the order they first appear
+    public List<SimulationConfig> getUniqueConfigs() {
+        Map<SimulationConfig, Boolean> unique = new LinkedHashMap<>();
+        for (Section section : sections) {
+            for (Row row : section.rows) {
+                for (SimulationConfig config : row.runs) {
+                    unique.putIfAbsent(config, Boolean.TRUE);
+                }
+            }
+        }
+        return new ArrayList<>(unique.keySet());
+    }
+
+    // Simulates every distinct config once and returns the sections as text, one line per row:
+    // label, mean final amount, mean flow, mean flow per month, then ResultSummary columns
+    public String run(ExperimentExecutor executor) {
+        return run(executor, null);
+    }
+
+    // Same, but configs already in the store for the loaded data are read back instead of simulated,
+    // and the new results are added to it. store may be null.
+    public String run(ExperimentExecutor executor, ResultStore store) {
+        StockData stockData = StockData.getDefault();
+        Map<SimulationConfig, SimulationResult> byConfig = new LinkedHashMap<>();
+        List<SimulationConfig> missing = new ArrayList<>();
+        for (SimulationConfig config : getUniqueConfigs()) {
+            SimulationResult stored = store == null ? null : store.get(config, stockData);
+            if (stored != null) {
+                byConfig.put(config, stored);
+            } else {
+                missing.add(config);
+            }
+        }
+        List<SimulationResult> results = executor.map(missing.size(), i -> missing.get(i).run());
+        for (int i = 0; i < missing.size(); i++) {
+            byConfig.put(missing.get(i), results.get(i));
+            if (store != null) {
+                store.put(missing.get(i), stockData, results.get(i));
+            }
+        }
+
+        StringBuilder out = new StringBuilder();
+        for (Section section : sections) {
+            out.append('\n').append(section.title).append('\n');
+            for (Row row : section.rows) {
+                double finalBalance = 0;
+                double totalFlow = 0;
+                ResultSummary summary = new ResultSummary();
+                for (SimulationConfig config : row.runs) {
+                    SimulationResult result = byConfig.get(config);
+                    summary.add(result, failed(config, result));
+                    finalBalance += result.getFinalAmount();
+                    totalFlow += result.getTotalFlow();
+                }
+                finalBalance /= row.runs.size();
+                totalFlow /= row.runs.size();
+                double monthlyFlow = totalFlow / row.months;
+                out.append(String.format("%s\t%.2f\t%.2f\t%.2f%s%n", row.label, finalBalance, totalFlow, monthlyFlow, summary.formatColumns()));
+            }
+        }
+        return out.toString();
+    }
+
+    // Ending with less than the start amount plus contributions, or running out of money when withdrawing
+    static boolean failed(SimulationConfig config, SimulationResult result) {
+        return config.isWithdrawing() ? result.isBankrupt() : result.getFinalAmount() < config.getStartAmount() + result.getTotalFlow();
+    }
+
+    public static class Section {
+        private final String title;
+        private final List<Row> rows = new ArrayList<>();
+
+        Section(String title) {
+            this.title = title;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public List<Row> getRows() {
+            return Collections.unmodifiableList(rows);
+        }
+    }
+
+    public static class Row {
+        private final String label;
+        private final List<SimulationConfig> runs;
+        private final int months;       // Divides the mean flow into the per month column
+
+        Row(String label, List<SimulationConfig> runs, int months) {
+            this.label = label;
+            this.runs = runs;
+            this.months = months;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public List<SimulationConfig> getRuns() {
+            return Collections.unmodifiableList(runs);
+        }
+
+        public int getMonths() {
+            return months;
+        }
+    }
+
+    public static class Builder {
+        private final SimulationConfig base;
+        private final List<Section> sections = new ArrayList<>();
+        private List<YearMonth[]> windows = new ArrayList<>();
+        private int windowMonths = 0;
+        private String labelFormat = "%.2f";
+
+        Builder(SimulationConfig base) {
+            this.base = base;
+        }
+
+        // Windows used by the sweeps that follow, and the months their flow is averaged over
+        public Builder windows(List<YearMonth[]> windows, int months) {
+            this.windows = windows;
+            this.windowMonths = months;
+            return this;
+        }
+
+        // Format of the swept value in the row label
+        public Builder labelFormat(String labelFormat) {
+            this.labelFormat = labelFormat;
+            return this;
+        }
+
+        public Builder section(String title) {
+            sections.add(new Section(title));
+            return this;
+        }
+
+        // One row per value: the base config changed by apply, run over the current windows
+        public Builder sweep(double[] values, BiFunction<SimulationConfig, Double, SimulationConfig> apply) {
+            for (double value : values) {
+                row(String.format(labelFormat, value), apply.apply(base, value), windows, windowMonths);
+            }
+            return this;
+        }
+
+        // One row running config over the given windows
+        public Builder row(String label, SimulationConfig config, List<YearMonth[]> windows, int months) {
+            if (sections.isEmpty()) {
+                throw new IllegalStateException("Rows have to be added to a section.");
+            }
+            List<SimulationConfig> runs = new ArrayList<>(windows.size());
+            for (YearMonth[] window : windows) {
+                runs.add(config.withDates(window[0], window[1]));
+            }
+            sections.get(sections.size() - 1).rows.add(new Row(label, runs, months));
+            return this;
+        }
+
+        // One row of arbitrary runs
+        public Builder row(String label, List<SimulationConfig> runs, int months) {
+            if (sections.isEmpty()) {
+                throw new IllegalStateException("Rows have to be added to a section.");
+            }
+            sections.get(sections.size() - 1).rows.add(new Row(label, new ArrayList<>(runs), months));
+            return this;
+        }
+
+        public SimulationConfig getBase() {
+            return base;
+        }
+
+        public ExperimentSpec build() {
+            return new ExperimentSpec(new ArrayList<>(sections));
+        }
+    }
+}
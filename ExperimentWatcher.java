@@ -0,0 +1,142 @@
+package symposium;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.FileTime;
+import java.time.YearMonth;
+
+// Keeps investment_results.txt and withdraw_results.txt up to date with a market data file.
+//
+// Whenever the file changes it is loaded again and both experiments are rerun against a ResultStore.
+// Results are keyed by the months each run read, so after new months are appended only the runs that
+// reach into them are simulated: the windows that were cut off by the old end of the data, the
+// rolling windows that now fit, and the run that goes to the last month. Everything else is read back
+// from the store and only the averages are added up again, so a monthly update costs about as much
+// as the new windows and not the whole history. The result files are replaced in one move, so a
+// reader never sees half of one.
+//
+// Binary data files are memory-mapped, so replace them with a new file instead of writing into them.
+public class ExperimentWatcher {
+
+    static final Path INVESTMENT_RESULTS = Paths.get("investment_results.txt");
+    static final Path WITHDRAW_RESULTS = Paths.get("withdraw_results.txt");
+    static final long SETTLE_MILLIS = 500;
+
+    private final Path dataFile;
+    private final ResultStore store;
+    private final ExperimentExecutor executor;
+    private FileTime lastModified;
+    private long lastSize = -1;
+
+    public ExperimentWatcher(Path dataFile, ResultStore store, ExperimentExecutor executor) {
+        this.dataFile = dataFile.toAbsolutePath();
+        this.store = store;
+        this.executor = executor;
+    }
+
+    // Arguments: <market data file> [result store directory] [parallelism]
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1) {
+            System.out.println("Usage: ExperimentWatcher <market data file> [result store directory] [parallelism]");
+            return;
+        }
+        Path storeDirectory = Paths.get(args.length > 1 ? args[1] : "results");
+        int parallelism = args.length > 2 ? Integer.parseInt(args[2]) : ExperimentExecutor.defaultParallelism();
+        try (ExperimentExecutor executor = new ExperimentExecutor(parallelism);
+             ResultStore store = ResultStore.open(storeDirectory)) {
+            ExperimentWatcher watcher = new ExperimentWatcher(Paths.get(args[0]), store, executor);
+            watcher.refresh();
+            watcher.watch();
+        }
+    }
+
+    // Blocks, refreshing after every change to the data file
+    public void watch() throws IOException, InterruptedException {
+        try (WatchService watchService = dataFile.getFileSystem().newWatchService()) {
+            dataFile.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            System.out.println("Watching " + dataFile);
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean touched = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (dataFile.getFileName().equals(event.context())) {
+                        touched = true;
+                    }
+                }
+                key.reset();
+                if (touched) {
+                    // Let the writer finish before reading
+                    Thread.sleep(SETTLE_MILLIS);
+                    refreshIfChanged();
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            // Closed from another thread, stop watching
+        }
+    }
+
+    private void refreshIfChanged() throws IOException {
+        if (!Files.exists(dataFile)) {
+            return;
+        }
+        if (Files.getLastModifiedTime(dataFile).equals(lastModified) && Files.size(dataFile) == lastSize) {
+            return;
+        }
+        try {
+            refresh();
+        } catch (IllegalArgumentException | IOException e) {
+            // Most likely caught in the middle of a write, the next change event tries again
+            System.out.println("Could not load " + dataFile + ": " + e.getMessage());
+        }
+    }
+
+    // Loads the data file, makes it the default stock data and rewrites both result files
+    public void refresh() throws IOException {
+        FileTime modified = Files.getLastModifiedTime(dataFile);
+        long size = Files.size(dataFile);
+        StockData previous = StockData.getDefault();
+        StockData next = MarketDataLoader.load(dataFile);
+        lastModified = modified;
+        lastSize = size;
+
+        long start = System.nanoTime();
+        int storedBefore = store.size();
+        StockData.setDefault(next);
+        writeResults(INVESTMENT_RESULTS, InvestmentExperiment.HEADER + InvestmentExperiment.runAllExperiments(executor, store));
+        writeResults(WITHDRAW_RESULTS, WithdrawExperiment.HEADER + WithdrawExperiment.runAllExperiments(executor, store));
+        store.flush();
+
+        System.out.printf("%s: %s, simulated %d runs in %.1f ms%n", dataFile.getFileName(), describeChange(previous, next),
+                store.size() - storedBefore, (System.nanoTime() - start) / 1e6);
+    }
+
+    private static String describeChange(StockData previous, StockData next) {
+        if (next.getVersion() == previous.getVersion()) {
+            return "no change";
+        }
+        YearMonth first = previous.getFirstMonth();
+        YearMonth last = previous.getLastMonth();
+        if (next.getFirstMonth().equals(first) && next.getMonthCount() > previous.getMonthCount()
+                && next.rangeVersion(first, last) == previous.rangeVersion(first, last)) {
+            return (next.getMonthCount() - previous.getMonthCount()) + " new months up to "
+                    + next.getLastMonth().format(ParentSimulator.formatter);
+        }
+        return "data changed, " + next.getFirstMonth().format(ParentSimulator.formatter) + " to "
+                + next.getLastMonth().format(ParentSimulator.formatter);
+    }
+
+    // Writes next to the file and moves it over the old one
+    private static void writeResults(Path file, String text) throws IOException {
+        Path temporary = file.toAbsolutePath().resolveSibling(file.getFileName() + ".tmp");
+        Files.writeString(temporary, text);
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
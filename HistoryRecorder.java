@@ -0,0 +1,116 @@
+package symposium;
+
+import java.io.IOException;
+import java.time.YearMonth;
+import java.util.Arrays;
+
+// Monthly balances of a run kept in primitive arrays. Simulators only record when they are given one.
+// The arrays are sized from the length of the run when it starts and reused by the next run, and with
+// a decimation of n only every nth month is kept.
+public class HistoryRecorder {
+
+    private final int decimation;
+    private StockData stockData;
+
+    private int[] monthIndexes = new int[0];    // Stock data index of each kept month
+    private double[] stockBalances = new double[0];
+    private double[] fixedBalances = new double[0];
+    private int size = 0;
+    private int seen = 0;                       // Months offered since the run started
+
+    // Every month
+    public HistoryRecorder() {
+        this(1);
+    }
+
+    public HistoryRecorder(int decimation) {
+        if (decimation < 1) {
+            throw new IllegalArgumentException("Decimation must be at least one month.");
+        }
+        this.decimation = decimation;
+    }
+
+    // Clears the history for a run of totalMonths months
+    void start(StockData stockData, int totalMonths) {
+        this.stockData = stockData;
+        int capacity = Math.max(0, totalMonths) / decimation + 1;
+        if (monthIndexes.length < capacity) {
+            monthIndexes = new int[capacity];
+            stockBalances = new double[capacity];
+            fixedBalances = new double[capacity];
+        }
+        size = 0;
+        seen = 0;
+    }
+
+    void record(int monthIndex, double stockBalance, double fixedBalance) {
+        if (seen++ % decimation != 0) {
+            return;
+        }
+        if (size == monthIndexes.length) {
+            int capacity = Math.max(16, size * 2);
+            monthIndexes = Arrays.copyOf(monthIndexes, capacity);
+            stockBalances = Arrays.copyOf(stockBalances, capacity);
+            fixedBalances = Arrays.copyOf(fixedBalances, capacity);
+        }
+        monthIndexes[size] = monthIndex;
+        stockBalances[size] = stockBalance;
+        fixedBalances[size] = fixedBalance;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getDecimation() {
+        return decimation;
+    }
+
+    public int getMonthIndex(int i) {
+        return monthIndexes[i];
+    }
+
+    public YearMonth getMonth(int i) {
+        return stockData.monthAt(monthIndexes[i]);
+    }
+
+    public double getStockBalance(int i) {
+        return stockBalances[i];
+    }
+
+    public double getFixedBalance(int i) {
+        return fixedBalances[i];
+    }
+
+    public double getTotal(int i) {
+        return stockBalances[i] + fixedBalances[i];
+    }
+
+    public double getMaxStockBalance() {
+        return max(stockBalances);
+    }
+
+    public double getMaxFixedBalance() {
+        return max(fixedBalances);
+    }
+
+    private double max(double[] values) {
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < size; i++) {
+            max = Math.max(max, values[i]);
+        }
+        return max;
+    }
+
+    // One "MM/yyyy,stock,fixed,total" row per kept month
+    public void writeCsv(Appendable out) throws IOException {
+        out.append("month,stock,fixed,total\n");
+        for (int i = 0; i < size; i++) {
+            out.append(getMonth(i).format(ParentSimulator.formatter)).append(',')
+                    .append(Double.toString(stockBalances[i])).append(',')
+                    .append(Double.toString(fixedBalances[i])).append(',')
+                    .append(Double.toString(getTotal(i))).append('\n');
+        }
+    }
+}
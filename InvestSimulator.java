@@ -2,7 +2,6 @@ package symposium;
 
 import java.awt.*;
 import java.time.YearMonth;
-import java.util.List;
 import javax.swing.*;
 
 public class InvestSimulator extends ParentSimulator {
@@ -18,6 +17,19 @@ public class InvestSimulator extends ParentSimulator {
         contribution = monthlyContribution;
     }
 
+    // Unarmed simulator for reuse, call reset() before running it
+    public InvestSimulator() {
+    }
+
+    // Re-arms this simulator for a new run instead of building a new one
+    public InvestSimulator reset(double startAmount, double monthlyContribution, double startAlloc, double endAlloc,
+                                 double fixedYield, double annualIncrease, YearMonth startDate, YearMonth endDate) {
+        reset(startAmount, startAlloc, endAlloc, fixedYield, annualIncrease, startDate, endDate);
+        contribution = monthlyContribution;
+        totalContribution = 0;
+        return this;
+    }
+
     // Divide contribution and split it to stock and fixed income according to current allocation
     public void allocateContribution() {
         double stockContribution = contribution * allocation;
@@ -36,63 +48,103 @@ public class InvestSimulator extends ParentSimulator {
     // Print formatted monthly update of values
     public void printValues() {
         System.out.printf("Date: %s | Stock Balance: %.2f | Fixed Balance: %.2f | Allocation: %.2f/%.2f | Contribution: %.2f | Total: %.2f%n",
-                currentDate.format(formatter), stockBalance, fixedBalance, allocation * 100, (1 - allocation) * 100, contribution, fixedBalance + stockBalance);
+                getCurrentDate().format(formatter), stockBalance, fixedBalance, allocation * 100, (1 - allocation) * 100, contribution, fixedBalance + stockBalance);
     }
 
-    // Run simulation
-    public void runSimulation() {
-
-        // Setup to be run once
+    // Setup to be run once
+    public void startSimulation() {
         adjustAllocation();
         rebalance();
         allocateContribution();
-        //printValues();
+        listener.monthStepped(this);
         nextMonth();
+    }
 
-        // Main simulation loop
-        while (currentDate.isBefore(endDate) || currentDate.equals(endDate)) {
-            YearMonth previousMonth = currentDate.minusMonths(1);
-            double percentChange = 0;
-            try {
-                // Calculate the percent change in stock price for the current month
-                percentChange = stockData.calculatePercentChange(currentDate, previousMonth);
-            } catch (IllegalArgumentException e) {
-                System.out.println("Stock data not available for the specified months.");
-                break;
-            }
+    // One month with everything fused into a single pass over locals
+    public boolean stepMonth(double percentChange) {
+        if (historicalRates) {
+            updateRates();
+        }
 
-            // Track the total contribution
-            totalContribution += contribution;
+        // Track the total contribution
+        totalContribution += contribution;
 
-            applyStockMarket(percentChange);
-            // Actions to be performed every January
-            if (currentDate.getMonthValue() == 1) {
-                adjustAllocation();
-                rebalance();
-                increaseContribution();
-            }
+        double stock = stockBalance * (1 + percentChange / 100);
+        double fixed = fixedBalance;
+
+        // Actions to be performed every January
+        if (calendarMonth == 1) {
+            stockBalance = stock;
+            adjustAllocation();
+            rebalance();
+            increaseContribution();
+            stock = stockBalance;
+            fixed = fixedBalance;
+        }
 
-            // Actions to be performed every month
-            dividend(); // Checks month in method
-            applyFixedIncomeYield();
-            allocateContribution();
+        // Actions to be performed every month
+        if (calendarMonth % 3 == 0) {
+            stock *= (1 + dividend / 4);  // Quarterly dividend
+        }
+        fixed *= (1 + (fixedYield / 12 / 100));
+        stock += contribution * allocation;
+        fixed += contribution * (1 - allocation);
+
+        stockBalance = stock;
+        fixedBalance = fixed;
+
+        recordHistory();
+        listener.monthStepped(this);
+        nextMonth();
+        return true;
+    }
 
-            // Update logged data
-            dates.add(currentDate);
-            stockBalances.add(stockBalance);
-            fixedBalances.add(fixedBalance);
+    // A lump sum with a fixed allocation, constant rates and no contributions only changes at the January
+    // rebalances. The run also has to be fresh, covered by the stock data, and have no history or listener
+    // to feed month by month.
+    public boolean canRunClosedForm() {
+        return contribution == 0 && startAlloc == endAlloc && !historicalRates && currentMonth == 0
+                && history == null && listener == SimulationListener.NONE
+                && totalMonths > 0 && stockData.hasPercentChange(startIndex + 1) && stockData.hasPercentChange(startIndex + totalMonths);
+    }
 
-            //printValues();
-            nextMonth();
+    // Same result as runSimulation up to floating point rounding, but each year between rebalances is
+    // one StockData price ratio and a few powers instead of a replay of its months.
+    // Runs that canRunClosedForm() rules out fall back to runSimulation.
+    public void runClosedForm() {
+        if (!canRunClosedForm()) {
+            runSimulation();
+            return;
         }
 
-        // Rebalance neatly for the end
-        allocation = endAlloc;
-        rebalance();
-        //printValues();
+        startSimulation();
+        int end = startIndex + totalMonths;
+
+        double dividendGrowth = 1 + dividend / 4;
+        double fixedGrowth = 1 + (fixedYield / 12 / 100);
+        int from = monthIndex - 1;  // Every month up to and including from has been applied
+        while (from < end) {
+            int january = from + 1 + (13 - stockData.calendarMonth(from + 1)) % 12;
+            int to = Math.min(january, end);
+
+            // Market changes up to and including to, dividends and yield up to the rebalance
+            int incomeTo = to == january ? to - 1 : to;
+            stockBalance *= stockData.growthFactor(from, to) * Math.pow(dividendGrowth, stockData.countQuarterMonths(from + 1, incomeTo));
+            fixedBalance *= Math.pow(fixedGrowth, incomeTo - from);
+
+            if (to == january) {
+                moveTo(january);
+                adjustAllocation();
+                rebalance();
+                fixedBalance *= fixedGrowth;  // January never pays a dividend
+            }
+            from = to;
+        }
 
-        // Display graph
-        //SwingUtilities.invokeLater(this::displayChart);
+        if (from >= monthIndex) {
+            moveTo(from + 1);
+        }
+        finishSimulation();
     }
 
     public double getFinalAmount() {
@@ -103,30 +155,39 @@ public class InvestSimulator extends ParentSimulator {
         return totalContribution;
     }
 
+    public double getTotalFlow() {
+        return totalContribution;
+    }
+
+    double getFlow() {
+        return contribution;
+    }
+
+    void restoreFlow(double flow, double flowTotal, boolean bankrupt) {
+        contribution = flow;
+        totalContribution = flowTotal;
+    }
+
     private void displayChart() {
         JFrame frame = new JFrame("Investment Growth");
         frame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
         frame.setSize(800, 600);
-        frame.add(new GraphPanel(dates, stockBalances, fixedBalances));
+        frame.add(new GraphPanel(history));
         frame.setVisible(true);
     }
 
     static class GraphPanel extends JPanel {
 
-        List<YearMonth> dates;
-        List<Double> stockBalances;
-        List<Double> fixedBalances;
+        HistoryRecorder history;
 
-        GraphPanel(List<YearMonth> dates, List<Double> stockBalances, List<Double> fixedBalances) {
-            this.dates = dates;
-            this.stockBalances = stockBalances;
-            this.fixedBalances = fixedBalances;
+        GraphPanel(HistoryRecorder history) {
+            this.history = history;
         }
 
         @Override
         protected void paintComponent(Graphics g) {
             super.paintComponent(g);
-            if (dates.isEmpty() || stockBalances.isEmpty() || fixedBalances.isEmpty()) {
+            if (history == null || history.size() == 0) {
                 return; // Prevent division by zero if no data exists
             }
 
@@ -139,9 +200,9 @@ public class InvestSimulator extends ParentSimulator {
             int graphWidth = width - 2 * padding;
             int graphHeight = height - 2 * padding;
 
-            double maxBalance = stockBalances.stream().max(Double::compareTo).orElse(1.0) + fixedBalances.stream().max(Double::compareTo).orElse(1.0);
+            double maxBalance = history.getMaxStockBalance() + history.getMaxFixedBalance();
 
-            int numBars = dates.size();
+            int numBars = history.size();
             if (numBars == 0) {
                 return;
             }
@@ -156,7 +217,7 @@ public class InvestSimulator extends ParentSimulator {
                 int xStock = padding + i * (barWidth * 2 + spacing);
                 int xFixed = xStock + barWidth;
 
-                int stockBarHeight = (int) (((stockBalances.get(i) + fixedBalances.get(i)) / maxBalance) * graphHeight);
+                int stockBarHeight = (int) ((history.getTotal(i) / maxBalance) * graphHeight);
 
                 g2.setColor(Color.BLUE);
                 g2.fillRect(xStock, height - padding - stockBarHeight, barWidth, stockBarHeight);
@@ -0,0 +1,43 @@
+package symposium;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+public class LifecycleExperiment {
+
+    private static final double[] WITHDRAW_PERCENTS = {3, 4, 5, 6};
+    private static final int SAVING_YEARS = 20;
+    private static final int RETIRED_YEARS = 15;
+    private static final YearMonth FIRST_START = YearMonth.of(1985, 5);
+
+    // 20 years of saving 1000/month then 15 years of withdrawals, for every start month with data for both
+    public static void main(String[] args) {
+        YearMonth retirement = FIRST_START.plusYears(SAVING_YEARS);
+        SimulationConfig accumulation = SimulationConfig.invest(0, 1000, 0.80, 0.80, 2.0, 0, FIRST_START, retirement);
+        List<SimulationConfig> plans = new ArrayList<>();
+        for (double percent : WITHDRAW_PERCENTS) {
+            plans.add(SimulationConfig.withdraw(0, percent / 100, 0.80, 0.80, 2.0, 0, retirement, retirement.plusYears(RETIRED_YEARS)));
+        }
+        LifecycleSimulator lifecycle = new LifecycleSimulator(accumulation, plans);
+
+        try (ExperimentExecutor executor = new ExperimentExecutor(ExperimentExecutor.parallelismFromArgs(args));
+             FileWriter writer = new FileWriter("lifecycle_results.txt")) {
+            LifecycleSimulator.Result result = lifecycle.run(lifecycle.windowsInData(StockData.getDefault(), 1), 1, executor);
+
+            writer.write("Withdraw %\tWindows\tMean Final Balance" + ResultSummary.COLUMN_HEADERS + "\n");
+            for (int p = 0; p < plans.size(); p++) {
+                ResultSummary summary = result.summarize(p);
+                writer.write(String.format("%.0f\t%d\t%.2f%s%n", WITHDRAW_PERCENTS[p], result.getWindowCount(),
+                        summary.getMeanFinalAmount(), summary.formatColumns()));
+            }
+
+            writer.write("\n");
+            result.writeTsv(writer);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package symposium;
+
+import java.io.IOException;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+// Saving and then retiring as one run: the withdrawal phase starts from the accumulation's stock and
+// fixed income balances at its end date as they drifted, instead of a new simulator rebuilt from the
+// final amount and rebalanced to the plan's start allocation. The accumulation is simulated up to the
+// retirement date and not finished, a snapshot of it is taken there, and every plan continues from
+// that snapshot through WithdrawSimulator.startFrom.
+//
+// In bulk the accumulation of every historical window is simulated once and every withdrawal plan
+// continues from it, so P plans over W windows cost W accumulations and W * P withdrawal phases. The
+// result is the joint distribution of the balance at retirement and what each plan then withdrew.
+public class LifecycleSimulator {
+
+    private final SimulationConfig accumulation;
+    private final List<SimulationConfig> withdrawals;
+
+    // The withdrawal plans have to start at the accumulation's end date, their start amount is ignored
+    public LifecycleSimulator(SimulationConfig accumulation, List<SimulationConfig> withdrawals) {
+        if (accumulation.isWithdrawing()) {
+            throw new IllegalArgumentException("The accumulation phase has to be an investment run.");
+        }
+        for (SimulationConfig withdrawal : withdrawals) {
+            if (!withdrawal.isWithdrawing() || !withdrawal.getStartDate().equals(accumulation.getEndDate())) {
+                throw new IllegalArgumentException("Withdrawal plans have to be withdrawal runs starting at "
+                        + accumulation.getEndDate().format(ParentSimulator.formatter) + ".");
+            }
+        }
+        this.accumulation = accumulation;
+        this.withdrawals = List.copyOf(withdrawals);
+    }
+
+    // Runs the window starting at the accumulation's start date and windows - 1 more, each one
+    // monthsBetween months later than the one before
+    public Result run(int windows, int monthsBetween, ExperimentExecutor executor) {
+        List<double[]> rows = executor.map(windows, w -> runWindow((long) w * monthsBetween));
+        return toResult(rows, monthsBetween);
+    }
+
+    // Only the window at the configured dates, on the calling thread
+    public Result runOnce() {
+        return toResult(List.of(runWindow(0)), 1);
+    }
+
+    // Retirement balance and contributions, then total withdrawn, final balance and bankruptcy per plan
+    private double[] runWindow(long shift) {
+        int plans = withdrawals.size();
+        YearMonth retirement = accumulation.getEndDate().plusMonths(shift);
+        InvestSimulator invest = new InvestSimulator().reset(accumulation.getStartAmount(), accumulation.getFlow(),
+                accumulation.getStartAlloc(), accumulation.getEndAlloc(), accumulation.getFixedYield(),
+                accumulation.getAnnualIncrease(), accumulation.getStartDate().plusMonths(shift), retirement);
+        invest.runUntil(retirement.plusMonths(1));
+        SimulatorSnapshot atRetirement = invest.snapshot();
+
+        double[] row = new double[2 + 3 * plans];
+        row[0] = atRetirement.getBalance();
+        row[1] = atRetirement.getTotalFlow();
+        WithdrawSimulator withdraw = new WithdrawSimulator();
+        for (int p = 0; p < plans; p++) {
+            SimulationConfig plan = withdrawals.get(p);
+            withdraw.reset(atRetirement.getBalance(), plan.getFlow(), plan.getStartAlloc(), plan.getEndAlloc(), plan.getFixedYield(),
+                    plan.getAnnualIncrease(), retirement, plan.getEndDate().plusMonths(shift));
+            withdraw.startFrom(atRetirement);
+            withdraw.continueSimulation();
+            row[2 + 3 * p] = withdraw.getTotalFlow();
+            row[3 + 3 * p] = withdraw.getFinalAmount();
+            row[4 + 3 * p] = withdraw.isBankrupt() ? 1 : 0;
+        }
+        return row;
+    }
+
+    private Result toResult(List<double[]> rows, int monthsBetween) {
+        int windows = rows.size();
+        int plans = withdrawals.size();
+        Result result = new Result(accumulation.getStartDate(), monthsBetween, windows, plans);
+        for (int w = 0; w < windows; w++) {
+            double[] row = rows.get(w);
+            result.retirementBalances[w] = row[0];
+            result.contributions[w] = row[1];
+            for (int p = 0; p < plans; p++) {
+                int i = w * plans + p;
+                result.totalWithdrawn[i] = row[2 + 3 * p];
+                result.finalBalances[i] = row[3 + 3 * p];
+                result.bankrupt[i] = row[4 + 3 * p] != 0;
+            }
+        }
+        return result;
+    }
+
+    // Number of windows monthsBetween apart, from the accumulation start, whose longest plan ends within the data
+    public int windowsInData(StockData stockData, int monthsBetween) {
+        YearMonth lastEnd = accumulation.getEndDate();
+        for (SimulationConfig withdrawal : withdrawals) {
+            if (withdrawal.getEndDate().isAfter(lastEnd)) {
+                lastEnd = withdrawal.getEndDate();
+            }
+        }
+        long spare = ChronoUnit.MONTHS.between(lastEnd, stockData.getLastMonth());
+        return spare < 0 ? 0 : (int) (spare / monthsBetween) + 1;
+    }
+
+    // Per window and plan results, plan p of window w is at index w * plans + p
+    public static class Result {
+        private final YearMonth firstStart;
+        private final int monthsBetween;
+        private final int windows;
+        private final int plans;
+        private final double[] retirementBalances;
+        private final double[] contributions;
+        private final double[] totalWithdrawn;
+        private final double[] finalBalances;
+        private final boolean[] bankrupt;
+
+        Result(YearMonth firstStart, int monthsBetween, int windows, int plans) {
+            this.firstStart = firstStart;
+            this.monthsBetween = monthsBetween;
+            this.windows = windows;
+            this.plans = plans;
+            this.retirementBalances = new double[windows];
+            this.contributions = new double[windows];
+            this.totalWithdrawn = new double[windows * plans];
+            this.finalBalances = new double[windows * plans];
+            this.bankrupt = new boolean[windows * plans];
+        }
+
+        public int getWindowCount() {
+            return windows;
+        }
+
+        public int getPlanCount() {
+            return plans;
+        }
+
+        public YearMonth getWindowStart(int window) {
+            return firstStart.plusMonths((long) window * monthsBetween);
+        }
+
+        public double getRetirementBalance(int window) {
+            return retirementBalances[window];
+        }
+
+        public double getTotalContributed(int window) {
+            return contributions[window];
+        }
+
+        public double getTotalWithdrawn(int window, int plan) {
+            return totalWithdrawn[window * plans + plan];
+        }
+
+        public double getFinalBalance(int window, int plan) {
+            return finalBalances[window * plans + plan];
+        }
+
+        public boolean isBankrupt(int window, int plan) {
+            return bankrupt[window * plans + plan];
+        }
+
+        // Summary of one plan over every window, a failure is running out of money
+        public ResultSummary summarize(int plan) {
+            ResultSummary summary = new ResultSummary();
+            for (int w = 0; w < windows; w++) {
+                int i = w * plans + plan;
+                summary.add(new SimulationResult(finalBalances[i], totalWithdrawn[i], bankrupt[i]), bankrupt[i]);
+            }
+            return summary;
+        }
+
+        // Counts of windows by retirement balance and total withdrawn for one plan, on equal-width bins
+        // between each value's minimum and maximum. counts[i][j] is balance bin i, withdrawn bin j.
+        public long[][] jointHistogram(int plan, int balanceBins, int withdrawnBins) {
+            double minBalance = Double.POSITIVE_INFINITY, maxBalance = Double.NEGATIVE_INFINITY;
+            double minWithdrawn = Double.POSITIVE_INFINITY, maxWithdrawn = Double.NEGATIVE_INFINITY;
+            for (int w = 0; w < windows; w++) {
+                minBalance = Math.min(minBalance, retirementBalances[w]);
+                maxBalance = Math.max(maxBalance, retirementBalances[w]);
+                minWithdrawn = Math.min(minWithdrawn, getTotalWithdrawn(w, plan));
+                maxWithdrawn = Math.max(maxWithdrawn, getTotalWithdrawn(w, plan));
+            }
+            long[][] counts = new long[balanceBins][withdrawnBins];
+            for (int w = 0; w < windows; w++) {
+                counts[bin(retirementBalances[w], minBalance, maxBalance, balanceBins)]
+                        [bin(getTotalWithdrawn(w, plan), minWithdrawn, maxWithdrawn, withdrawnBins)]++;
+            }
+            return counts;
+        }
+
+        private static int bin(double value, double min, double max, int bins) {
+            if (max <= min) {
+                return 0;
+            }
+            return Math.min(bins - 1, (int) ((value - min) / (max - min) * bins));
+        }
+
+        // One line per window and plan, tab separated
+        public void writeTsv(Appendable out) throws IOException {
+            out.append("Start\tPlan\tRetirement Balance\tTotal Contributed\tTotal Withdrawn\tFinal Balance\tBankrupt\n");
+            for (int w = 0; w < windows; w++) {
+                for (int p = 0; p < plans; p++) {
+                    out.append(String.format("%s\t%d\t%.2f\t%.2f\t%.2f\t%.2f\t%b%n", getWindowStart(w).format(ParentSimulator.formatter), p,
+                            retirementBalances[w], contributions[w], getTotalWithdrawn(w, p), getFinalBalance(w, p), isBankrupt(w, p)));
+                }
+            }
+        }
+    }
+}
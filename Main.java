@@ -2,13 +2,25 @@
 
 package symposium;
 
+import java.io.IOException;
 import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
 import java.util.Scanner;
 
 public class Main {
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException, InterruptedException {
+        // --batch <input> <output> [parallelism] runs a file of client plans without prompts
+        if (args.length > 0 && args[0].equals("--batch")) {
+            BatchRunner.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        // --serve [port] [parallelism] runs the HTTP simulation service on localhost
+        if (args.length > 0 && args[0].equals("--serve")) {
+            SimulationServer.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
 
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MM/yyyy");
         Scanner scanner = new Scanner(System.in);
@@ -57,8 +69,13 @@ public class Main {
                 System.out.print("Enter annual contribution increase (percentage): ");
                 double annualIncrease = getDouble(scanner);
 
+                // Simulate up to the end date and keep the unbalanced state there for the withdrawal phase
                 InvestSimulator investSim = new InvestSimulator(startAmount, monthlyContribution, startStockAlloc / 100.0, endStockAlloc / 100.0, fixedYield, annualIncrease, startDate, endDate);
-                investSim.runSimulation();
+                setUpSimulation(investSim, false);
+                investSim.runUntil(endDate.plusMonths(1));
+                SimulatorSnapshot retirement = investSim.snapshot();
+                investSim.continueSimulation();
+                printRealFinalAmount(investSim);
 
                 // Get the final amount from InvestSimulator
                 double finalAmount = investSim.getFinalAmount();
@@ -85,9 +102,12 @@ public class Main {
                 System.out.print("Enter annual withdrawal increase (percentage): ");
                 double withdrawIncrease = getDouble(scanner);
 
-                // Run withdrawal simulation
+                // Run withdrawal simulation, continuing from the accumulation's stock and fixed income balances
                 WithdrawSimulator withdrawSim = new WithdrawSimulator(finalAmount, annualWithdrawal / 100, withdrawStartStock / 100.0, withdrawEndStock / 100.0, fixedYield, withdrawIncrease, endDate, endWithdrawlDate);
-                withdrawSim.runSimulation();
+                setUpSimulation(withdrawSim, true);
+                withdrawSim.startFrom(retirement);
+                withdrawSim.continueSimulation();
+                printRealFinalAmount(withdrawSim);
                 break;
             }
             case 1: {
@@ -104,7 +124,7 @@ public class Main {
                 System.out.print("Enter annual contribution increase (percentage): ");
                 double annualIncrease = getDouble(scanner);
                 InvestSimulator investSim = new InvestSimulator(startAmount, monthlyContribution, startStockAlloc / 100.0, endStockAlloc / 100.0, fixedYield, annualIncrease, startDate, endDate);
-                investSim.runSimulation();
+                runSimulation(investSim, false);
                 break;
             }
             default: {
@@ -123,13 +143,32 @@ public class Main {
 
                 // Run withdrawal simulation
                 WithdrawSimulator withdrawSim = new WithdrawSimulator(finalAmount, annualWithdrawal / 100.0, startStockAlloc / 100.0, endStockAlloc / 100.0, fixedYield, withdrawIncrease, startDate, endDate);
-                withdrawSim.runSimulation();
+                runSimulation(withdrawSim, true);
                 break;
             }
         }
         scanner.close();
     }
 
+    // Runs with console output. With -Dsymposium.historicalRates=true the dividend and fixed income yield
+    // follow the loaded data's series, and when the data has CPI the result is also shown in real dollars.
+    private static void runSimulation(ParentSimulator sim, boolean printMonths) {
+        setUpSimulation(sim, printMonths);
+        sim.runSimulation();
+        printRealFinalAmount(sim);
+    }
+
+    private static void setUpSimulation(ParentSimulator sim, boolean printMonths) {
+        sim.setListener(new ConsoleSimulationListener(printMonths));
+        sim.setHistoricalRates(Boolean.getBoolean("symposium.historicalRates"));
+    }
+
+    private static void printRealFinalAmount(ParentSimulator sim) {
+        if (sim.stockData.hasCpi()) {
+            System.out.printf("Final amount in %s dollars: %.2f%n", sim.startDate.format(ParentSimulator.formatter), sim.getRealFinalAmount());
+        }
+    }
+
     // Gets a double value with error checking
     private static double getDouble(Scanner scanner) {
         double value;
@@ -179,8 +218,9 @@ public class Main {
     // Gets a year/month combo with error checking
     private static YearMonth getYearMonth(DateTimeFormatter formatter, Scanner scanner) {
         YearMonth formattedDate;
-        final YearMonth MIN_DATE = YearMonth.of(1985, 1);
-        final YearMonth MAX_DATE = YearMonth.of(2024, 12);
+        // Bounds come from the loaded stock data
+        final YearMonth MIN_DATE = StockData.getDefault().getFirstMonth();
+        final YearMonth MAX_DATE = StockData.getDefault().getLastMonth();
 
         do {
             String dateString = scanner.nextLine();
@@ -188,7 +228,7 @@ public class Main {
 
             if (formattedDate != null) {
                 if (formattedDate.isBefore(MIN_DATE) || formattedDate.isAfter(MAX_DATE)) {
-                    System.out.println("Invalid date. Please enter a date between 01/1985 and 12/2024.");
+                    System.out.println("Invalid date. Please enter a date between " + MIN_DATE.format(formatter) + " and " + MAX_DATE.format(formatter) + ".");
                     formattedDate = null;
                 }
             }
@@ -0,0 +1,428 @@
+package symposium;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.YearMonth;
+import java.util.Arrays;
+
+// Loads monthly stock prices into StockData, from CSV or from the binary column format.
+//
+// CSV files are memory-mapped and parsed straight from the bytes, so a row costs no Strings or
+// boxed values. Each row is "MM/yyyy,price", prices are plain decimals. Rows have to be consecutive
+// months with positive prices; gaps, duplicate or out-of-order months and bad values are rejected
+// with the offending line. An optional header row can name extra columns holding the dividend_yield
+// and bond_yield (annual percent) and cpi series, for example "month,price,dividend_yield,bond_yield,cpi",
+// every row then needs a value for them. Columns without a recognised name are ignored.
+//
+// Binary files are what writeBinary() writes, all little-endian:
+//   0   magic "SMSD"
+//   4   int format version
+//   8   int first month as year * 12 + month - 1
+//   12  int number of months
+//   16  int number of columns
+//   20  int reserved
+//   24  column directory, 16 bytes per column: int column id, int value width, long data offset
+//   ... column data, each column starting on an 8 byte boundary
+// Column ids are MONTH_COLUMN (int, year * 12 + month - 1), PRICE_COLUMN and RETURN_COLUMN (double),
+// and optionally DIVIDEND_YIELD_COLUMN, BOND_YIELD_COLUMN and CPI_COLUMN (double).
+// Loading maps the file and hands StockData views of the price and return columns without copying
+// them, so the cost does not depend on the length of the history and processes on the same host
+// share the same page cache.
+public class MarketDataLoader {
+
+    static final int MAGIC = 0x44534D53;    // "SMSD" read little-endian
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 24;
+    static final int MONTH_COLUMN = 1;
+    static final int PRICE_COLUMN = 2;
+    static final int RETURN_COLUMN = 3;
+    static final int DIVIDEND_YIELD_COLUMN = 4;
+    static final int BOND_YIELD_COLUMN = 5;
+    static final int CPI_COLUMN = 6;
+
+    // Optional CSV columns, matched by header name
+    private static final String[] SERIES_NAMES = {"dividend_yield", "bond_yield", "cpi"};
+    private static final int DIVIDEND_YIELD = 0;
+    private static final int BOND_YIELD = 1;
+    private static final int CPI = 2;
+
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    // Converts a CSV file, or the default data when the input is --builtin, to the binary format
+    // Arguments: <input.csv | --builtin> <output>
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.out.println("Usage: MarketDataLoader <input.csv | --builtin> <output>");
+            return;
+        }
+        StockData stockData = args[0].equals("--builtin") ? StockData.getDefault() : loadCsv(Paths.get(args[0]));
+        writeBinary(stockData, Paths.get(args[1]));
+        System.out.println("Wrote " + stockData.getMonthCount() + " months to " + args[1]);
+    }
+
+    // Picks the format from the first bytes of the file
+    public static StockData load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer start = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(start, 0);
+            if (start.position() == 4 && start.getInt(0) == MAGIC) {
+                return loadBinary(path);
+            }
+        }
+        return loadCsv(path);
+    }
+
+    public static StockData loadBinary(Path path) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        String source = path.toString();
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException(source + ": not a stock data file");
+        }
+        int version = buffer.getInt(4);
+        if (version < 1 || version > VERSION) {
+            throw new IllegalArgumentException(source + ": unsupported stock data version " + version);
+        }
+        int firstMonth = buffer.getInt(8);
+        int count = buffer.getInt(12);
+        int columns = buffer.getInt(16);
+        if (count <= 0 || columns < 0 || HEADER_SIZE + columns * 16L > buffer.limit()) {
+            throw new IllegalArgumentException(source + ": corrupt stock data header");
+        }
+
+        DoubleBuffer prices = null;
+        DoubleBuffer returns = null;
+        DoubleBuffer dividendYields = null;
+        DoubleBuffer bondYields = null;
+        DoubleBuffer cpi = null;
+        for (int c = 0; c < columns; c++) {
+            int entry = HEADER_SIZE + c * 16;
+            int id = buffer.getInt(entry);
+            int width = buffer.getInt(entry + 4);
+            long offset = buffer.getLong(entry + 8);
+            // Known columns need their own width, column() reads count doubles whatever the directory says
+            int expectedWidth = id == MONTH_COLUMN ? 4 : isDoubleColumn(id) ? 8 : width;
+            if (width != expectedWidth || width <= 0 || offset % 8 != 0 || offset < 0 || offset + (long) width * count > buffer.limit()) {
+                throw new IllegalArgumentException(source + ": corrupt stock data column " + id);
+            }
+            if (id == MONTH_COLUMN) {
+                // Only the ends are checked so opening stays constant time, writeBinary() wrote every month
+                if (buffer.getInt((int) offset) != firstMonth || buffer.getInt((int) offset + (count - 1) * 4) != firstMonth + count - 1) {
+                    throw new IllegalArgumentException(source + ": month column does not match the header");
+                }
+            } else if (id == PRICE_COLUMN) {
+                prices = column(buffer, offset, count);
+            } else if (id == RETURN_COLUMN) {
+                returns = column(buffer, offset, count);
+            } else if (id == DIVIDEND_YIELD_COLUMN) {
+                dividendYields = column(buffer, offset, count);
+            } else if (id == BOND_YIELD_COLUMN) {
+                bondYields = column(buffer, offset, count);
+            } else if (id == CPI_COLUMN) {
+                cpi = column(buffer, offset, count);
+            }
+        }
+        if (prices == null || returns == null) {
+            throw new IllegalArgumentException(source + ": price or return column missing");
+        }
+        StockData stockData = StockData.fromColumns(YearMonth.of(firstMonth / 12, firstMonth % 12 + 1), prices, returns);
+        if (dividendYields == null && bondYields == null && cpi == null) {
+            return stockData;
+        }
+        return stockData.withSeries(dividendYields, bondYields, cpi);
+    }
+
+    private static boolean isDoubleColumn(int id) {
+        return id == PRICE_COLUMN || id == RETURN_COLUMN || id == DIVIDEND_YIELD_COLUMN || id == BOND_YIELD_COLUMN || id == CPI_COLUMN;
+    }
+
+    private static DoubleBuffer column(ByteBuffer buffer, long offset, int count) {
+        return buffer.slice((int) offset, count * 8).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+    }
+
+    // Writes the month, price and return columns in the binary format, plus whichever series the data has
+    public static void writeBinary(StockData stockData, Path path) throws IOException {
+        int count = stockData.getMonthCount();
+        double[][] series = {stockData.getPrices(), stockData.getMonthlyReturns(),
+                stockData.getDividendYields(), stockData.getBondYields(), stockData.getCpiLevels()};
+        int[] ids = {PRICE_COLUMN, RETURN_COLUMN, DIVIDEND_YIELD_COLUMN, BOND_YIELD_COLUMN, CPI_COLUMN};
+        int columns = 1;
+        for (double[] values : series) {
+            if (values != null) {
+                columns++;
+            }
+        }
+
+        long monthOffset = align(HEADER_SIZE + columns * 16);
+        long offset = align(monthOffset + count * 4L);
+        long size = offset + (columns - 1) * count * 8L;
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+        YearMonth first = stockData.getFirstMonth();
+        int firstMonth = first.getYear() * 12 + first.getMonthValue() - 1;
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, firstMonth);
+        buffer.putInt(12, count);
+        buffer.putInt(16, columns);
+        putColumn(buffer, 0, MONTH_COLUMN, 4, monthOffset);
+        for (int i = 0; i < count; i++) {
+            buffer.putInt((int) monthOffset + i * 4, firstMonth + i);
+        }
+        int column = 1;
+        for (int s = 0; s < series.length; s++) {
+            if (series[s] == null) {
+                continue;
+            }
+            putColumn(buffer, column++, ids[s], 8, offset);
+            for (int i = 0; i < count; i++) {
+                buffer.putDouble((int) offset + i * 8, series[s][i]);
+            }
+            offset += count * 8L;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    private static void putColumn(ByteBuffer buffer, int column, int id, int width, long offset) {
+        int entry = HEADER_SIZE + column * 16;
+        buffer.putInt(entry, id);
+        buffer.putInt(entry + 4, width);
+        buffer.putLong(entry + 8, offset);
+    }
+
+    private static long align(long offset) {
+        return (offset + 7) & ~7L;
+    }
+
+    public static StockData loadCsv(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return parseCsv(buffer, path.toString());
+        }
+    }
+
+    static StockData parseCsv(ByteBuffer buffer, String source) {
+        int limit = buffer.limit();
+        int position = buffer.position();
+        int line = 0;
+
+        double[] prices = new double[512];
+        double[][] series = new double[SERIES_NAMES.length][];
+        int[] seriesOfField = new int[0];   // Series index of each field after the price, -1 when ignored
+        int count = 0;
+        int firstMonth = 0;     // year * 12 + month - 1 of the first row
+        boolean headerAllowed = true;
+
+        while (position < limit) {
+            line++;
+            int end = position;
+            while (end < limit && buffer.get(end) != '\n') {
+                end++;
+            }
+            int lineEnd = end;
+            while (lineEnd > position && (buffer.get(lineEnd - 1) == '\r' || buffer.get(lineEnd - 1) == ' ')) {
+                lineEnd--;
+            }
+
+            if (lineEnd > position) {
+                byte first = buffer.get(position);
+                if (first < '0' || first > '9') {
+                    if (!headerAllowed) {
+                        throw error(source, line, "expected MM/yyyy,price");
+                    }
+                    seriesOfField = parseHeader(buffer, position, lineEnd, series);
+                } else {
+                    // Month and year
+                    int i = position;
+                    int month = 0;
+                    while (i < lineEnd && isDigit(buffer.get(i))) {
+                        month = month * 10 + (buffer.get(i++) - '0');
+                    }
+                    if (i == lineEnd || buffer.get(i++) != '/') {
+                        throw error(source, line, "expected MM/yyyy,price");
+                    }
+                    int year = 0;
+                    int yearStart = i;
+                    while (i < lineEnd && isDigit(buffer.get(i))) {
+                        year = year * 10 + (buffer.get(i++) - '0');
+                    }
+                    if (month < 1 || month > 12 || i - yearStart != 4 || i == lineEnd || buffer.get(i++) != ',') {
+                        throw error(source, line, "expected MM/yyyy,price");
+                    }
+                    int absoluteMonth = year * 12 + month - 1;
+
+                    // Price
+                    int fieldEnd = fieldEnd(buffer, i, lineEnd);
+                    double price = parseNumber(buffer, i, fieldEnd, source, line, "price");
+                    if (!(price > 0)) {
+                        throw error(source, line, "price must be positive");
+                    }
+
+                    // Months have to follow each other without gaps or repeats
+                    if (count == 0) {
+                        firstMonth = absoluteMonth;
+                    } else {
+                        int expected = firstMonth + count;
+                        if (absoluteMonth < expected) {
+                            throw error(source, line, text(buffer, position, yearStart + 4) + " is a duplicate or out of order");
+                        }
+                        if (absoluteMonth > expected) {
+                            throw error(source, line, "months missing before " + text(buffer, position, yearStart + 4));
+                        }
+                    }
+                    if (count == prices.length) {
+                        prices = Arrays.copyOf(prices, count * 2);
+                        for (int s = 0; s < series.length; s++) {
+                            if (series[s] != null) {
+                                series[s] = Arrays.copyOf(series[s], count * 2);
+                            }
+                        }
+                    }
+                    prices[count] = price;
+
+                    // Series named in the header, in the order of their columns
+                    for (int field = 0; field < seriesOfField.length; field++) {
+                        i = fieldEnd + 1;
+                        fieldEnd = i > lineEnd ? i : fieldEnd(buffer, i, lineEnd);
+                        int s = seriesOfField[field];
+                        if (s < 0) {
+                            continue;
+                        }
+                        if (i > lineEnd) {
+                            throw error(source, line, SERIES_NAMES[s] + " missing");
+                        }
+                        double value = parseNumber(buffer, i, fieldEnd, source, line, SERIES_NAMES[s]);
+                        if (s == CPI && !(value > 0)) {
+                            throw error(source, line, "cpi must be positive");
+                        }
+                        series[s][count] = value;
+                    }
+                    count++;
+                }
+                headerAllowed = false;
+            }
+            position = end + 1;
+        }
+
+        if (count == 0) {
+            throw new IllegalArgumentException(source + ": no stock data");
+        }
+        StockData stockData = StockData.fromPrices(YearMonth.of(firstMonth / 12, firstMonth % 12 + 1), Arrays.copyOf(prices, count));
+        if (series[DIVIDEND_YIELD] == null && series[BOND_YIELD] == null && series[CPI] == null) {
+            return stockData;
+        }
+        return stockData.withSeries(wrap(series[DIVIDEND_YIELD], count), wrap(series[BOND_YIELD], count), wrap(series[CPI], count));
+    }
+
+    // Maps the columns after month and price to the series they hold and allocates those series
+    private static int[] parseHeader(ByteBuffer buffer, int from, int to, double[][] series) {
+        int[] seriesOfField = new int[0];
+        int field = 0;
+        int i = from;
+        while (i <= to) {
+            int end = fieldEnd(buffer, i, to);
+            if (field >= 2) {
+                String name = text(buffer, i, end).trim().toLowerCase();
+                int s = Arrays.asList(SERIES_NAMES).indexOf(name);
+                seriesOfField = Arrays.copyOf(seriesOfField, field - 1);
+                seriesOfField[field - 2] = s;
+                if (s >= 0) {
+                    series[s] = new double[512];
+                }
+            }
+            field++;
+            i = end + 1;
+        }
+        return seriesOfField;
+    }
+
+    private static DoubleBuffer wrap(double[] series, int count) {
+        return series == null ? null : DoubleBuffer.wrap(Arrays.copyOf(series, count));
+    }
+
+    private static int fieldEnd(ByteBuffer buffer, int from, int lineEnd) {
+        int i = from;
+        while (i < lineEnd && buffer.get(i) != ',') {
+            i++;
+        }
+        return i;
+    }
+
+    // Plain decimal with an optional minus sign, spaces only before and after it
+    private static double parseNumber(ByteBuffer buffer, int from, int to, String source, int line, String name) {
+        int i = from;
+        while (i < to && buffer.get(i) == ' ') {
+            i++;
+        }
+        int end = to;
+        while (end > i && buffer.get(end - 1) == ' ') {
+            end--;
+        }
+        boolean negative = i < end && buffer.get(i) == '-';
+        if (negative) {
+            i++;
+        }
+        int start = i;
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        for (; i < end; i++) {
+            byte b = buffer.get(i);
+            if (isDigit(b)) {
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+            } else if (b == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else {
+                throw error(source, line, "invalid " + name);
+            }
+        }
+        if (digits == 0) {
+            throw error(source, line, "invalid " + name);
+        }
+        double value;
+        if (digits <= 15 && fractionDigits < POWERS_OF_TEN.length) {
+            // Exact integer divided by an exact power of ten rounds once, same as parseDouble
+            value = mantissa / POWERS_OF_TEN[Math.max(0, fractionDigits)];
+        } else {
+            value = Double.parseDouble(text(buffer, start, end));
+        }
+        return negative ? -value : value;
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static String text(ByteBuffer buffer, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(from + i);
+        }
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    private static IllegalArgumentException error(String source, int line, String message) {
+        return new IllegalArgumentException(source + " line " + line + ": " + message);
+    }
+}
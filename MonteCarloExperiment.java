@@ -0,0 +1,59 @@
+package symposium;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.time.YearMonth;
+
+public class MonteCarloExperiment {
+
+    private static final int PATHS = 1_000_000;
+    private static final long SEED = 2025;
+    private static final double[] BLOCK_LENGTHS = {1, 6, 12, 24};
+    private static final double[] PERCENTILES = {5, 25, 50, 75, 95};
+
+    // Same baselines as InvestmentExperiment and WithdrawExperiment, 30 years starting in May
+    private static final YearMonth START_DATE = YearMonth.of(1985, 5);
+    private static final YearMonth END_DATE = YearMonth.of(2015, 5);
+
+    // Arguments: [paths] [parallelism]
+    public static void main(String[] args) {
+        int paths = args.length > 0 ? Integer.parseInt(args[0]) : PATHS;
+        int parallelism = args.length > 1 ? Integer.parseInt(args[1]) : ExperimentExecutor.defaultParallelism();
+        StockData stockData = StockData.getDefault();
+
+        try (ExperimentExecutor executor = new ExperimentExecutor(parallelism);
+             FileWriter writer = new FileWriter("monte_carlo_results.txt")) {
+            writer.write("Block Length\tSuccess Rate\tMean\tP5\tP25\tP50\tP75\tP95\n");
+
+            // Accumulation: success means ending with more than was contributed
+            writer.write("\nInvestment (1000/month, 80/20, 2% yield, 30 years):\n");
+            for (double blockLength : BLOCK_LENGTHS) {
+                MonteCarloSimulator monteCarlo = new MonteCarloSimulator(stockData, blockLength, SEED);
+                MonteCarloSimulator.Result result = monteCarlo.run(
+                        SimulationConfig.invest(0, 1000, 0.80, 0.80, 2.0, 0, START_DATE, END_DATE),
+                        paths, 1000 * 12 * 30, executor);
+                writeResult(writer, blockLength, result);
+            }
+
+            // Withdrawal: success means the portfolio never ran out of money
+            writer.write("\nWithdrawal (1,000,000, 4%, 80/20, 2% yield, 30 years):\n");
+            for (double blockLength : BLOCK_LENGTHS) {
+                MonteCarloSimulator monteCarlo = new MonteCarloSimulator(stockData, blockLength, SEED);
+                MonteCarloSimulator.Result result = monteCarlo.run(
+                        SimulationConfig.withdraw(1_000_000, 0.04, 0.80, 0.80, 2.0, 0, START_DATE, END_DATE),
+                        paths, 0, executor);
+                writeResult(writer, blockLength, result);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void writeResult(FileWriter writer, double blockLength, MonteCarloSimulator.Result result) throws IOException {
+        writer.write(String.format("%.0f\t%.4f\t%.2f", blockLength, result.getSuccessProbability(), result.getMeanFinalAmount()));
+        for (double percentile : PERCENTILES) {
+            writer.write(String.format("\t%.2f", result.getFinalAmountPercentile(percentile)));
+        }
+        writer.write(String.format("%n"));
+    }
+}
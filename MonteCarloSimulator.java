@@ -0,0 +1,102 @@
+package symposium;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Runs a simulator over many synthetic market paths drawn by ReturnBootstrap.
+// Paths are split into fixed chunks and every chunk gets its own random stream split off a seeded
+// root in chunk order, so the same seed gives the same results for any parallelism. Results are
+// kept as one ResultSummary per chunk, so memory does not grow with the number of paths.
+public class MonteCarloSimulator {
+
+    private static final int PATHS_PER_CHUNK = 4096;
+
+    private final StockData stockData;
+    private final double meanBlockLength;
+    private final long seed;
+
+    public MonteCarloSimulator(StockData stockData, double meanBlockLength, long seed) {
+        this.stockData = stockData;
+        this.meanBlockLength = meanBlockLength;
+        this.seed = seed;
+    }
+
+    // Runs paths simulations of config on one simulator per chunk, re-armed with reset for every path.
+    // A path is a success when it did not go bankrupt and ended with at least successThreshold.
+    public Result run(SimulationConfig config, int paths, double successThreshold, ExperimentExecutor executor) {
+        int chunks = (paths + PATHS_PER_CHUNK - 1) / PATHS_PER_CHUNK;
+        SplittableRandom root = new SplittableRandom(seed);
+        List<SplittableRandom> streams = new ArrayList<>(chunks);
+        for (int i = 0; i < chunks; i++) {
+            streams.add(root.split());
+        }
+
+        // Every chunk keeps a constant-size summary, merged in chunk order
+        List<ResultSummary> summaries = executor.map(chunks, chunk -> {
+            ReturnBootstrap bootstrap = new ReturnBootstrap(stockData, meanBlockLength, streams.get(chunk));
+            int from = chunk * PATHS_PER_CHUNK;
+            int to = Math.min(paths, from + PATHS_PER_CHUNK);
+            ResultSummary summary = new ResultSummary();
+            ParentSimulator sim = config.newSimulator();
+            for (int p = from; p < to; p++) {
+                config.reset(sim);
+                runPath(sim, bootstrap);
+                summary.add(SimulationResult.of(sim), sim.isBankrupt() || sim.getFinalAmount() < successThreshold);
+            }
+            return summary;
+        });
+
+        ResultSummary total = new ResultSummary();
+        for (ResultSummary summary : summaries) {
+            total.merge(summary);
+        }
+        return new Result(total);
+    }
+
+    // Same steps as runSimulation, with the market changes drawn from the bootstrap
+    static void runPath(ParentSimulator sim, ReturnBootstrap bootstrap) {
+        bootstrap.startPath();
+        sim.startSimulation();
+        while (sim.currentMonth <= sim.totalMonths) {
+            if (!sim.stepMonth(bootstrap.nextPercentChange())) {
+                break;
+            }
+        }
+        sim.finishSimulation();
+    }
+
+    public static class Result {
+        private final ResultSummary summary;
+
+        Result(ResultSummary summary) {
+            this.summary = summary;
+        }
+
+        public int getPaths() {
+            return (int) summary.getCount();
+        }
+
+        public double getSuccessProbability() {
+            return 1 - summary.getFailureRate();
+        }
+
+        // Final amount at the given percentile (0-100), within the sketch accuracy
+        public double getFinalAmountPercentile(double percentile) {
+            return summary.getFinalAmountPercentile(percentile);
+        }
+
+        // Total contributed or withdrawn at the given percentile (0-100), within the sketch accuracy
+        public double getTotalFlowPercentile(double percentile) {
+            return summary.getTotalFlowPercentile(percentile);
+        }
+
+        public double getMeanFinalAmount() {
+            return summary.getMeanFinalAmount();
+        }
+
+        public ResultSummary getSummary() {
+            return summary;
+        }
+    }
+}
@@ -2,9 +2,7 @@ package symposium;
 
 import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.List;
-public class ParentSimulator {
+public abstract class ParentSimulator {
     double stockBalance;
     double fixedBalance;
     double startAlloc;
@@ -12,22 +10,42 @@ public class ParentSimulator {
     double allocation;
     double annualIncrease;
     double fixedYield;
-    double dividend = 0.02;
+    static final double DEFAULT_DIVIDEND = 0.02;
+    double dividend = DEFAULT_DIVIDEND;
+    // Take the dividend and fixed income yield from the stock data's series every month when it has them
+    boolean historicalRates = false;
 
-    YearMonth currentDate;
+    YearMonth startDate;
     YearMonth endDate;
-    StockData stockData;
-    DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MM/yyyy");
+    // Shared by every simulator, the market data is immutable and only swapped between runs
+    StockData stockData = StockData.getDefault();
+    static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MM/yyyy");
+    SimulationListener listener = SimulationListener.NONE;
 
-    List<YearMonth> dates = new ArrayList<>();
-    List<Double> stockBalances = new ArrayList<>();
-    List<Double> fixedBalances = new ArrayList<>();
+    // Monthly balances, only kept when a recorder is set
+    HistoryRecorder history = null;
 
     int totalMonths;
     int currentMonth = 0;
 
+    // Integer clock: index into the stock data and calendar month (1-12) of the current month
+    int startIndex;
+    int monthIndex;
+    int calendarMonth;
+
+    // Unarmed simulator for reuse, reset() has to be called before running it
+    ParentSimulator() {
+    }
+
     public ParentSimulator(double startAmount, double startAlloc, double endAlloc,
                            double fixedYield, double annualIncrease, YearMonth startDate, YearMonth endDate) {
+        reset(startAmount, startAlloc, endAlloc, fixedYield, annualIncrease, startDate, endDate);
+    }
+
+    // Puts the simulator back to the start of a run with new parameters, on the current default stock
+    // data. The listener, historical rates and history settings stay as they are.
+    void reset(double startAmount, double startAlloc, double endAlloc,
+               double fixedYield, double annualIncrease, YearMonth startDate, YearMonth endDate) {
 
         this.startAlloc = startAlloc;
         this.endAlloc = endAlloc;
@@ -36,16 +54,197 @@ public class ParentSimulator {
         this.allocation = startAlloc; // Initial allocation for the first month
         this.annualIncrease = annualIncrease;
         this.fixedYield = fixedYield;
-        this.currentDate = startDate;
+        this.dividend = DEFAULT_DIVIDEND;
+        this.startDate = startDate;
         this.endDate = endDate;
-        this.totalMonths = (endDate.getYear() - currentDate.getYear()) * 12 + endDate.getMonthValue() - currentDate.getMonthValue();
-        this.stockData = new StockData();
+        this.totalMonths = (endDate.getYear() - startDate.getYear()) * 12 + endDate.getMonthValue() - startDate.getMonthValue();
+        this.currentMonth = 0;
+        this.stockData = StockData.getDefault();
+        this.startIndex = stockData.indexOf(startDate);
+        this.monthIndex = startIndex;
+        this.calendarMonth = startDate.getMonthValue();
+        if (history != null) {
+            history.start(stockData, totalMonths);
+        }
+    }
+
+    // Setup to be run once before the first market month
+    public abstract void startSimulation();
+
+    // Runs one full month against the given stock market change, returns false when the simulation has to stop
+    public abstract boolean stepMonth(double percentChange);
+
+    // Rebalance neatly for the end
+    public void finishSimulation() {
+        allocation = endAlloc;
+        rebalance();
+        listener.monthStepped(this);
+    }
+
+    // Print formatted monthly update of values
+    public abstract void printValues();
+
+    public abstract double getFinalAmount();
+
+    // Total contributed, or total withdrawn for the withdrawal phase
+    public abstract double getTotalFlow();
+
+    // Only a withdrawal phase can run out of money
+    public boolean isBankrupt() {
+        return false;
+    }
+
+    public void setListener(SimulationListener listener) {
+        this.listener = listener;
+    }
+
+    // Keep the monthly balances for displayChart or exporting, off by default so sweeps do not pay for it
+    public void setHistory(HistoryRecorder history) {
+        this.history = history;
+        if (history != null && startDate != null) {
+            history.start(stockData, totalMonths);
+        }
+    }
+
+    public HistoryRecorder getHistory() {
+        return history;
+    }
+
+    public void setHistoricalRates(boolean historicalRates) {
+        this.historicalRates = historicalRates;
+    }
+
+    // Final amount in dollars of the start month, needs a CPI series in the stock data
+    public double getRealFinalAmount() {
+        int last = Math.min(Math.max(startIndex, monthIndex - 1), stockData.getMonthCount() - 1);
+        return stockData.realValue(getFinalAmount(), last, startIndex);
+    }
+
+    // Run simulation
+    public void runSimulation() {
+        startSimulation();
+        continueSimulation();
+    }
+
+    // Runs the months before the given one, starting the simulation first if needed, then stops so a
+    // snapshot can be taken there. Returns false when the run ended on the way.
+    public boolean runUntil(YearMonth month) {
+        if (currentMonth == 0) {
+            startSimulation();
+        }
+        int last = Math.min(totalMonths, stockData.indexOf(month) - 1 - startIndex);
+        while (currentMonth <= last) {
+            if (!stockData.hasPercentChange(monthIndex)) {
+                System.out.println("Stock data not available for the specified months.");
+                return false;
+            }
+            if (!stepMonth(stockData.getPercentChange(monthIndex))) {
+                return false;
+            }
+        }
+        return currentMonth <= totalMonths;
+    }
+
+    // Runs the remaining months and finishes, after runUntil or on a fork of a snapshot. A snapshot taken
+    // before the setup month still needs it, so that runs first like in runUntil.
+    public void continueSimulation() {
+        if (currentMonth == 0) {
+            startSimulation();
+        }
+
+        // Main simulation loop
+        while (currentMonth <= totalMonths) {
+            // Percent change in stock price for the current month
+            if (!stockData.hasPercentChange(monthIndex)) {
+                System.out.println("Stock data not available for the specified months.");
+                break;
+            }
+
+            if (!stepMonth(stockData.getPercentChange(monthIndex))) {
+                break;
+            }
+        }
+
+        finishSimulation();
+
+        // Display graph
+        //SwingUtilities.invokeLater(this::displayChart);
+    }
+
+    // The state right now, to fork or store
+    public SimulatorSnapshot snapshot() {
+        YearMonth lastSimulated = getCurrentDate().minusMonths(1);
+        return new SimulatorSnapshot(isWithdrawing(), historicalRates, isBankrupt(), stockBalance, fixedBalance,
+                startAlloc, endAlloc, allocation, annualIncrease, fixedYield, dividend, getFlow(), getTotalFlow(),
+                startDate, endDate, currentMonth, stockData.rangeVersion(startDate, lastSimulated));
+    }
+
+    // Puts this simulator into the snapshot's state on the current default stock data. The listener and
+    // history settings stay as they are.
+    public void restore(SimulatorSnapshot snapshot) {
+        if (snapshot.withdrawing != isWithdrawing()) {
+            throw new IllegalArgumentException("Snapshot is of a different kind of simulator.");
+        }
+        StockData data = StockData.getDefault();
+        if (data.rangeVersion(snapshot.startDate, snapshot.getCurrentDate().minusMonths(1)) != snapshot.dataVersion) {
+            throw new IllegalStateException("The stock data differs from the months the snapshot was simulated on.");
+        }
+        this.stockData = data;
+        this.historicalRates = snapshot.historicalRates;
+        this.stockBalance = snapshot.stockBalance;
+        this.fixedBalance = snapshot.fixedBalance;
+        this.startAlloc = snapshot.startAlloc;
+        this.endAlloc = snapshot.endAlloc;
+        this.allocation = snapshot.allocation;
+        this.annualIncrease = snapshot.annualIncrease;
+        this.fixedYield = snapshot.fixedYield;
+        this.dividend = snapshot.dividend;
+        this.startDate = snapshot.startDate;
+        this.endDate = snapshot.endDate;
+        this.totalMonths = (endDate.getYear() - startDate.getYear()) * 12 + endDate.getMonthValue() - startDate.getMonthValue();
+        this.currentMonth = snapshot.currentMonth;
+        this.startIndex = stockData.indexOf(startDate);
+        this.monthIndex = startIndex + currentMonth;
+        this.calendarMonth = stockData.calendarMonth(monthIndex);
+        restoreFlow(snapshot.flow, snapshot.flowTotal, snapshot.bankrupt);
+    }
+
+    boolean isWithdrawing() {
+        return false;
+    }
+
+    // Monthly contribution, or the fraction withdrawn each month
+    abstract double getFlow();
+
+    abstract void restoreFlow(double flow, double flowTotal, boolean bankrupt);
+
+    // Calendar date of the current month, only built when something needs to display it
+    public YearMonth getCurrentDate() {
+        return startDate.plusMonths(currentMonth);
     }
 
     // Increment month
     public void nextMonth() {
-        currentDate = currentDate.plusMonths(1);
         currentMonth++;
+        monthIndex++;
+        calendarMonth = calendarMonth == 12 ? 1 : calendarMonth + 1;
+    }
+
+    // Jump the clock straight to a stock data index
+    void moveTo(int index) {
+        monthIndex = index;
+        currentMonth = index - startIndex;
+        calendarMonth = stockData.calendarMonth(index);
+    }
+
+    // Dividend and fixed income yield of the current month from the stock data series
+    void updateRates() {
+        if (stockData.hasDividendYields()) {
+            dividend = stockData.getDividendYield(monthIndex) / 100;
+        }
+        if (stockData.hasBondYields()) {
+            fixedYield = stockData.getBondYield(monthIndex);
+        }
     }
 
     // Add stock market change
@@ -55,8 +254,7 @@ public class ParentSimulator {
 
     // Add dividend when current month is March, June, September, or December
     public void dividend() {
-        if (currentDate.getMonthValue() == 3 || currentDate.getMonthValue() == 6 ||
-                currentDate.getMonthValue() == 9 || currentDate.getMonthValue() == 12) {
+        if (calendarMonth % 3 == 0) {
             stockBalance *= (1 + dividend / 4);  // Quarterly dividend
         }
     }
@@ -78,7 +276,14 @@ public class ParentSimulator {
         double total = stockBalance + fixedBalance;
         stockBalance = total * allocation;
         fixedBalance = total * (1 - allocation);
-        System.out.println("Rebalanced at " + currentDate.format(formatter));
+        listener.rebalanced(this);
+    }
+
+    // Update logged data
+    void recordHistory() {
+        if (history != null) {
+            history.record(monthIndex, stockBalance, fixedBalance);
+        }
     }
 }
 
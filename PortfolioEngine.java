@@ -0,0 +1,391 @@
+package symposium;
+
+import java.time.YearMonth;
+import java.util.List;
+
+// Accumulation or withdrawal over any number of asset classes, with the balances, returns and target
+// weights in primitive arrays.
+//
+// Every asset has a monthly return series on the stock data's month index, a quarterly dividend and
+// a fixed income yield, any of which may be zero: the S&P 500 is the stock data returns plus the 2%
+// dividend, a bond fund is no returns and a yield, another index is its own return series. Each month
+// runs the same steps as InvestSimulator and WithdrawSimulator over the vector:
+//   market change on every asset
+//   January: rebalance to the month's target weights and raise the contribution or withdrawal
+//   dividends in March, June, September and December, then the fixed income yield
+//   contribution split by the target weights, or the withdrawal taken from the most overweight asset
+//
+// The target weights glide from a start to an end vector like the two-bucket allocation, or come from
+// a per-month schedule. The last asset always gets what is left after the others (1 - the rest), the
+// same way the fixed income side is 1 - allocation. With a stock and a fixed income asset the engine
+// does the same floating point operations in the same order as the two simulators, so twoAsset gives
+// exactly their results; PortfolioEngineTest holds it and BatchSimulator to that.
+//
+// InvestSimulator and WithdrawSimulator are not wrappers over the engine. Their fused two-balance step
+// runs a 30-year window about three times faster than twoAsset (PortfolioEngineBenchmark), which every
+// experiment would pay, and they carry the listener, history, snapshots and the lifecycle hand-off that
+// the engine does not have. The engine is for portfolios the two buckets cannot express.
+public class PortfolioEngine {
+
+    private final StockData stockData;
+    private final int assets;
+    private final double[][] returns;       // Percent change by stock data index, per asset
+    private final double[] dividendGrowth;  // 1 + annual dividend / 4, applied quarterly
+    private final double[] yieldGrowth;     // 1 + annual yield / 12 / 100, applied monthly
+
+    private final double[] balances;
+    private final double[] weights;         // Target weights in effect this month
+    private final double[] startWeights;
+    private final double[] endWeights;
+    private double[] schedule;              // Optional target weights, assets values per month
+
+    private boolean withdrawing;
+    private double flow;                    // Monthly contribution, or the fraction withdrawn each month
+    private double flowTotal;
+    private double annualIncrease;
+    private boolean bankrupt;
+    private boolean dataEnded;              // The stock data ran out before the end date
+    private int totalMonths;
+    private int currentMonth;
+    private int monthIndex;
+    private int calendarMonth;
+
+    public PortfolioEngine(List<Asset> assetClasses) {
+        if (assetClasses.isEmpty()) {
+            throw new IllegalArgumentException("A portfolio needs at least one asset.");
+        }
+        this.stockData = StockData.getDefault();
+        this.assets = assetClasses.size();
+        this.returns = new double[assets][];
+        this.dividendGrowth = new double[assets];
+        this.yieldGrowth = new double[assets];
+        double[] marketReturns = null;
+        double[] noReturns = null;
+        for (int i = 0; i < assets; i++) {
+            Asset asset = assetClasses.get(i);
+            if (asset.market) {
+                if (marketReturns == null) {
+                    marketReturns = new double[stockData.getMonthCount()];
+                    for (int m = 1; m < marketReturns.length; m++) {
+                        marketReturns[m] = stockData.getPercentChange(m);
+                    }
+                }
+                returns[i] = marketReturns;
+            } else if (asset.returns != null) {
+                if (asset.returns.length < stockData.getMonthCount()) {
+                    throw new IllegalArgumentException(asset.name + " has fewer months of returns than the stock data.");
+                }
+                returns[i] = asset.returns;
+            } else {
+                // Multiplying by 1 + 0 / 100 leaves a balance exactly as it was
+                if (noReturns == null) {
+                    noReturns = new double[stockData.getMonthCount()];
+                }
+                returns[i] = noReturns;
+            }
+            dividendGrowth[i] = 1 + asset.dividend / 4;
+            yieldGrowth[i] = 1 + (asset.yield / 12 / 100);
+        }
+        this.balances = new double[assets];
+        this.weights = new double[assets];
+        this.startWeights = new double[assets];
+        this.endWeights = new double[assets];
+    }
+
+    // A stock and a fixed income asset, giving the same results as the config's InvestSimulator or WithdrawSimulator
+    public static PortfolioEngine twoAsset(SimulationConfig config) {
+        PortfolioEngine engine = new PortfolioEngine(List.of(
+                Asset.market("Stocks", ParentSimulator.DEFAULT_DIVIDEND), Asset.fixedIncome("Fixed income", config.getFixedYield())));
+        double startAlloc = config.getStartAlloc();
+        double endAlloc = config.getEndAlloc();
+        return engine.reset(config.isWithdrawing(), config.getStartAmount(), config.getFlow(),
+                new double[]{startAlloc, 1 - startAlloc}, new double[]{endAlloc, 1 - endAlloc},
+                config.getAnnualIncrease(), config.getStartDate(), config.getEndDate());
+    }
+
+    // Sets up a run. flow is the monthly contribution, or the annual withdrawal as a fraction like the
+    // WithdrawSimulator constructor takes it. The weight vectors have one entry per asset and should add
+    // up to 1; the last entry is replaced by what the others leave.
+    public PortfolioEngine reset(boolean withdrawing, double startAmount, double flow, double[] startWeights, double[] endWeights,
+                                 double annualIncrease, YearMonth startDate, YearMonth endDate) {
+        if (startWeights.length != assets || endWeights.length != assets) {
+            throw new IllegalArgumentException("Expected " + assets + " weights.");
+        }
+        System.arraycopy(startWeights, 0, this.startWeights, 0, assets);
+        System.arraycopy(endWeights, 0, this.endWeights, 0, assets);
+        remainderToLast(this.startWeights);
+        remainderToLast(this.endWeights);
+
+        this.withdrawing = withdrawing;
+        this.flow = withdrawing ? flow / 12 : flow;
+        this.flowTotal = 0;
+        this.annualIncrease = annualIncrease;
+        this.bankrupt = false;
+        this.dataEnded = false;
+        this.schedule = null;
+        this.totalMonths = (endDate.getYear() - startDate.getYear()) * 12 + endDate.getMonthValue() - startDate.getMonthValue();
+        this.currentMonth = 0;
+        this.monthIndex = stockData.indexOf(startDate);
+        this.calendarMonth = startDate.getMonthValue();
+        for (int i = 0; i < assets; i++) {
+            balances[i] = startAmount * this.startWeights[i];
+        }
+        return this;
+    }
+
+    // Target weights for every month of the run instead of the glide path, month m of the run at
+    // m * assets. Rebalancing still only happens at the start, every January and at the end.
+    public PortfolioEngine setTargetWeights(double[] schedule) {
+        if (schedule.length < (totalMonths + 1) * assets) {
+            throw new IllegalArgumentException("Schedule needs " + (totalMonths + 1) + " months of " + assets + " weights.");
+        }
+        this.schedule = schedule;
+        return this;
+    }
+
+    public PortfolioEngine run() {
+        // Setup month: rebalance to the first target and add the first contribution or withdrawal
+        adjustWeights();
+        rebalance();
+        if (withdrawing) {
+            withdraw();
+        } else {
+            contribute();
+        }
+        nextMonth();
+
+        while (currentMonth <= totalMonths) {
+            if (!stockData.hasPercentChange(monthIndex)) {
+                dataEnded = true;
+                break;
+            }
+            if (!stepMonth()) {
+                break;
+            }
+        }
+
+        // Rebalance neatly for the end
+        System.arraycopy(endWeights, 0, weights, 0, assets);
+        rebalance();
+        return this;
+    }
+
+    private boolean stepMonth() {
+        double[] b = balances;
+        int m = monthIndex;
+        if (!withdrawing) {
+            flowTotal += flow;
+        }
+
+        // Only January's rebalance needs every asset's market change first, otherwise each asset is one
+        // pass of market change, dividend, yield and contribution in the order the simulators apply them
+        boolean january = calendarMonth == 1;
+        if (january) {
+            for (int i = 0; i < assets; i++) {
+                b[i] = b[i] * (1 + returns[i][m] / 100);
+            }
+            adjustWeights();
+            rebalance();
+            flow *= (1 + annualIncrease / 100);
+        }
+
+        boolean quarter = calendarMonth % 3 == 0;
+        double contribution = withdrawing ? 0 : flow;
+        for (int i = 0; i < assets; i++) {
+            double balance = january ? b[i] : b[i] * (1 + returns[i][m] / 100);
+            if (quarter) {
+                balance *= dividendGrowth[i];
+            }
+            balance *= yieldGrowth[i];
+            b[i] = withdrawing ? balance : balance + contribution * weights[i];
+        }
+
+        if (withdrawing) {
+            withdraw();
+
+            // A negative balance is first fixed by rebalancing, when every asset is negative the money is gone
+            if (anyNegative()) {
+                rebalance();
+                if (allNegative()) {
+                    double debt = -1 * total();
+                    flowTotal -= debt;
+                    for (int i = 0; i < assets; i++) {
+                        b[i] = 0;
+                    }
+                    bankrupt = true;
+                    return false;
+                }
+            }
+        }
+
+        nextMonth();
+        return true;
+    }
+
+    private void contribute() {
+        for (int i = 0; i < assets; i++) {
+            balances[i] += flow * weights[i];
+        }
+    }
+
+    // Takes the month's withdrawal from the asset furthest over its weight. The last asset holds the
+    // remainder, so it is the one over its weight when no other asset is but some are under theirs.
+    // When every asset is exactly on target the withdrawal is split by the weights.
+    private void withdraw() {
+        double total = total();
+        double amount = flow * total;
+        int from = -1;
+        double largestExcess = 0;
+        boolean anyUnder = false;
+        for (int i = 0; i < assets - 1; i++) {
+            double share = balances[i] / total;
+            if (share > weights[i]) {
+                if (from < 0 || share - weights[i] > largestExcess) {
+                    from = i;
+                    largestExcess = share - weights[i];
+                }
+            } else if (share < weights[i]) {
+                anyUnder = true;
+            }
+        }
+        if (from < 0 && anyUnder) {
+            from = assets - 1;
+        }
+
+        if (from >= 0) {
+            balances[from] -= amount;
+        } else {
+            for (int i = assets - 1; i >= 0; i--) {
+                balances[i] -= amount * weights[i];
+            }
+        }
+        flowTotal += amount;
+    }
+
+    // Glide path position of this month, or the schedule's row
+    private void adjustWeights() {
+        if (schedule != null) {
+            System.arraycopy(schedule, currentMonth * assets, weights, 0, assets);
+        } else {
+            double progress = (double) currentMonth / totalMonths;
+            for (int i = 0; i < assets - 1; i++) {
+                weights[i] = startWeights[i] + progress * (endWeights[i] - startWeights[i]);
+            }
+        }
+        remainderToLast(weights);
+    }
+
+    private void rebalance() {
+        double total = total();
+        for (int i = 0; i < assets; i++) {
+            balances[i] = total * weights[i];
+        }
+    }
+
+    private void nextMonth() {
+        currentMonth++;
+        monthIndex++;
+        calendarMonth = calendarMonth == 12 ? 1 : calendarMonth + 1;
+    }
+
+    private double total() {
+        double total = balances[0];
+        for (int i = 1; i < assets; i++) {
+            total += balances[i];
+        }
+        return total;
+    }
+
+    private boolean anyNegative() {
+        for (int i = 0; i < assets; i++) {
+            if (balances[i] < 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean allNegative() {
+        for (int i = 0; i < assets; i++) {
+            if (!(balances[i] < 0)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void remainderToLast(double[] weights) {
+        double last = 1;
+        for (int i = 0; i < weights.length - 1; i++) {
+            last -= weights[i];
+        }
+        weights[weights.length - 1] = last;
+    }
+
+    public int getAssetCount() {
+        return assets;
+    }
+
+    public double getBalance(int asset) {
+        return balances[asset];
+    }
+
+    public double getFinalAmount() {
+        return total();
+    }
+
+    // Total contributed, or total withdrawn for a withdrawal run
+    public double getTotalFlow() {
+        return flowTotal;
+    }
+
+    public boolean isBankrupt() {
+        return bankrupt;
+    }
+
+    // The stock data ended before the end date, so the run stopped at its last month. The engine does
+    // not print, callers report it the way they report everything else.
+    public boolean isDataEnded() {
+        return dataEnded;
+    }
+
+    public SimulationResult getResult() {
+        return new SimulationResult(getFinalAmount(), flowTotal, bankrupt);
+    }
+
+    // One asset class: monthly returns, a quarterly dividend and a monthly fixed income yield
+    public static class Asset {
+        final String name;
+        final boolean market;     // Returns are the stock data's
+        final double[] returns;   // Otherwise this series, percent change by stock data index, or none
+        final double dividend;    // Annual, as a fraction like ParentSimulator.DEFAULT_DIVIDEND
+        final double yield;       // Annual, in percent like the fixed income yield
+
+        Asset(String name, boolean market, double[] returns, double dividend, double yield) {
+            this.name = name;
+            this.market = market;
+            this.returns = returns;
+            this.dividend = dividend;
+            this.yield = yield;
+        }
+
+        // Follows the loaded stock data, like the stock side of the simulators
+        public static Asset market(String name, double dividend) {
+            return new Asset(name, true, null, dividend, 0);
+        }
+
+        // Follows its own monthly percent changes, indexed like the stock data
+        public static Asset series(String name, double[] monthlyPercentChanges, double dividend) {
+            return new Asset(name, false, monthlyPercentChanges.clone(), dividend, 0);
+        }
+
+        // Only earns a yield, like the fixed income side of the simulators
+        public static Asset fixedIncome(String name, double annualYieldPercent) {
+            return new Asset(name, false, null, 0, annualYieldPercent);
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+}
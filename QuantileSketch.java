@@ -0,0 +1,184 @@
+package symposium;
+
+import java.util.Arrays;
+
+// Streaming quantiles with a bounded relative error, in the style of DDSketch.
+// Values are counted in logarithmic buckets: bucket k holds the values in (gamma^(k-1), gamma^k], so any
+// quantile read back is within relativeAccuracy of a value that was actually added. Memory depends on
+// the spread of the values, not on how many there are, and is capped at MAX_BUCKETS per sign by folding
+// the buckets closest to zero together. Two sketches with the same accuracy merge by adding counts, so
+// workers can each fill their own and combine them afterwards. Not thread safe.
+public class QuantileSketch {
+
+    static final double DEFAULT_ACCURACY = 0.005;
+    private static final int MAX_BUCKETS = 4096;
+    // Anything smaller in magnitude is counted as zero
+    private static final double MIN_VALUE = 1e-9;
+
+    private final double relativeAccuracy;
+    private final double gamma;
+    private final double logGamma;
+
+    private final Store positive = new Store();
+    private final Store negative = new Store();     // Buckets of -value
+    private long zeroCount = 0;
+
+    private long count = 0;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public QuantileSketch() {
+        this(DEFAULT_ACCURACY);
+    }
+
+    public QuantileSketch(double relativeAccuracy) {
+        if (!(relativeAccuracy > 0 && relativeAccuracy < 1)) {
+            throw new IllegalArgumentException("Relative accuracy must be between 0 and 1.");
+        }
+        this.relativeAccuracy = relativeAccuracy;
+        this.gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+        this.logGamma = Math.log(gamma);
+    }
+
+    public void add(double value) {
+        if (Double.isNaN(value)) {
+            throw new IllegalArgumentException("Cannot add NaN to a sketch.");
+        }
+        if (value > MIN_VALUE) {
+            positive.add(index(value), 1);
+        } else if (value < -MIN_VALUE) {
+            negative.add(index(-value), 1);
+        } else {
+            zeroCount++;
+        }
+        count++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    // Adds every value counted by other, which has to use the same accuracy
+    public void merge(QuantileSketch other) {
+        if (other.relativeAccuracy != relativeAccuracy) {
+            throw new IllegalArgumentException("Cannot merge sketches with different accuracies.");
+        }
+        if (other.count == 0) {
+            return;
+        }
+        positive.merge(other.positive);
+        negative.merge(other.negative);
+        zeroCount += other.zeroCount;
+        count += other.count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    public double getRelativeAccuracy() {
+        return relativeAccuracy;
+    }
+
+    // Value at the given percentile (0-100), nearest rank like the exact percentiles elsewhere
+    public double getPercentile(double percentile) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        long rank = Math.min(count - 1, Math.max(0, (long) Math.ceil(percentile / 100 * count) - 1));
+
+        // Most negative values first, then zeros, then positive values from the smallest
+        long seen = 0;
+        for (int i = negative.counts.length - 1; i >= 0; i--) {
+            seen += negative.counts[i];
+            if (seen > rank) {
+                return clamp(-value(i + negative.offset));
+            }
+        }
+        seen += zeroCount;
+        if (seen > rank) {
+            return clamp(0);
+        }
+        for (int i = 0; i < positive.counts.length; i++) {
+            seen += positive.counts[i];
+            if (seen > rank) {
+                return clamp(value(i + positive.offset));
+            }
+        }
+        return max;
+    }
+
+    private int index(double magnitude) {
+        return (int) Math.ceil(Math.log(magnitude) / logGamma);
+    }
+
+    // Middle of bucket k in relative terms, at most relativeAccuracy away from anything in it
+    private double value(int k) {
+        return 2 * Math.pow(gamma, k) / (gamma + 1);
+    }
+
+    private double clamp(double value) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    // Contiguous bucket counts, counts[i] is the count of bucket offset + i
+    private static class Store {
+        long[] counts = new long[0];
+        int offset = 0;
+
+        void add(int k, long n) {
+            ensure(k);
+            // Buckets below the offset were folded into the lowest one
+            counts[Math.max(0, k - offset)] += n;
+        }
+
+        void merge(Store other) {
+            if (other.counts.length == 0) {
+                return;
+            }
+            ensure(other.offset);
+            ensure(other.offset + other.counts.length - 1);
+            for (int i = 0; i < other.counts.length; i++) {
+                if (other.counts[i] != 0) {
+                    add(other.offset + i, other.counts[i]);
+                }
+            }
+        }
+
+        private void ensure(int k) {
+            if (counts.length == 0) {
+                counts = new long[1];
+                offset = k;
+                return;
+            }
+            if (k < offset && counts.length < MAX_BUCKETS) {
+                int low = Math.max(k, offset + counts.length - MAX_BUCKETS);
+                long[] grown = new long[counts.length + (offset - low)];
+                System.arraycopy(counts, 0, grown, offset - low, counts.length);
+                counts = grown;
+                offset = low;
+            } else if (k >= offset + counts.length) {
+                counts = Arrays.copyOf(counts, k - offset + 1);
+                if (counts.length > MAX_BUCKETS) {
+                    // Fold the buckets closest to zero into the lowest one that is kept
+                    int drop = counts.length - MAX_BUCKETS;
+                    long folded = 0;
+                    for (int i = 0; i <= drop; i++) {
+                        folded += counts[i];
+                    }
+                    counts = Arrays.copyOfRange(counts, drop, counts.length);
+                    counts[0] = folded;
+                    offset += drop;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package symposium;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
+
+// Keeps results of earlier runs by their parameters, for callers that see the same configuration
+// again and again (batch files, the HTTP service).
+//
+// Entries are kept in least recently used order and evicted once there are more than maxEntries of
+// them or their weights add up to more than maxWeight, except those still being computed. Concurrent
+// requests for a key that is still being computed wait for that computation instead of starting their own. Every lookup checks the
+// data version first and drops everything when it changed, so no result outlives the market data it
+// was computed from. The map is only locked to look up and update entries, never while computing.
+public class ResultCache<K, V> {
+
+    // Default bounds for simulation results, roughly 200 bytes per key and result
+    static final int DEFAULT_MAX_ENTRIES = 100_000;
+    static final long DEFAULT_MAX_WEIGHT = 32L * 1024 * 1024;
+    static final long SIMULATION_WEIGHT = 200;
+
+    private static final ResultCache<SimulationConfig, SimulationResult> SIMULATIONS = new ResultCache<>(
+            DEFAULT_MAX_ENTRIES, DEFAULT_MAX_WEIGHT, result -> SIMULATION_WEIGHT, () -> StockData.getDefault().getVersion());
+
+    private final int maxEntries;
+    private final long maxWeight;
+    private final ToLongFunction<V> weigher;
+    private final LongSupplier dataVersion;
+
+    // Access ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalWeight;
+    private long version;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public ResultCache(int maxEntries, long maxWeight, ToLongFunction<V> weigher, LongSupplier dataVersion) {
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        this.dataVersion = dataVersion;
+        this.version = dataVersion.getAsLong();
+    }
+
+    // Shared cache for runs on the default stock data
+    public static ResultCache<SimulationConfig, SimulationResult> simulations() {
+        return SIMULATIONS;
+    }
+
+    // Shortcut for the shared simulation cache
+    public static SimulationResult run(SimulationConfig config) {
+        return SIMULATIONS.get(config, SimulationConfig::run);
+    }
+
+    // The cached value, or compute(key) run on this thread when nobody has it yet
+    public V get(K key, Function<K, V> compute) {
+        long currentVersion = dataVersion.getAsLong();
+        Entry<V> entry;
+        boolean owner = false;
+        synchronized (this) {
+            if (currentVersion != version) {
+                entries.clear();
+                totalWeight = 0;
+                version = currentVersion;
+                invalidations.increment();
+            }
+            entry = entries.get(key);
+            if (entry == null) {
+                entry = new Entry<>();
+                entries.put(key, entry);
+                owner = true;
+            }
+        }
+
+        if (!owner) {
+            V value;
+            try {
+                value = entry.value.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+            // Waiters on a computation that failed got no result, so only a value counts as a hit
+            hits.increment();
+            return value;
+        }
+
+        misses.increment();
+        V value;
+        try {
+            value = compute.apply(key);
+        } catch (RuntimeException | Error e) {
+            // Waiting callers see the failure, later ones try again
+            synchronized (this) {
+                entries.remove(key, entry);
+            }
+            entry.value.completeExceptionally(e);
+            throw e;
+        }
+
+        synchronized (this) {
+            // The entry may already be gone if the data changed while computing
+            if (entries.get(key) == entry) {
+                entry.weight = weigher.applyAsLong(value);
+                totalWeight += entry.weight;
+                evict();
+            }
+        }
+        // Completed only once it is weighed, so eviction never sees a done entry without its weight
+        entry.value.complete(value);
+        return value;
+    }
+
+    // Drops least recently used entries until both bounds hold. Entries still computing stay, dropping
+    // one would make the next request for its key start a second computation.
+    private void evict() {
+        Iterator<Entry<V>> it = entries.values().iterator();
+        while (it.hasNext() && (entries.size() > maxEntries || totalWeight > maxWeight)) {
+            Entry<V> eldest = it.next();
+            if (!eldest.value.isDone()) {
+                continue;
+            }
+            totalWeight -= eldest.weight;
+            it.remove();
+            evictions.increment();
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        totalWeight = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getTotalWeight() {
+        return totalWeight;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    // Number of times the data version changed and everything was dropped
+    public long getInvalidationCount() {
+        return invalidations.sum();
+    }
+
+    public double getHitRate() {
+        long requests = getHitCount() + getMissCount();
+        return requests == 0 ? 0 : (double) getHitCount() / requests;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d entries, %d hits, %d misses (%.1f%% hit rate), %d evictions, %d invalidations",
+                size(), getHitCount(), getMissCount(), getHitRate() * 100, getEvictionCount(), getInvalidationCount());
+    }
+
+    // A result that may still be computing, weight is 0 until it is done
+    private static class Entry<V> {
+        final CompletableFuture<V> value = new CompletableFuture<>();
+        long weight;
+    }
+}
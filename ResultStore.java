@@ -0,0 +1,380 @@
+package symposium;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+// Simulation results kept on disk across program runs, so a run that was done before on the same
+// market data is read back instead of simulated again.
+//
+// The store is a directory of segment files written only by appending. Every record is one config,
+// the fingerprint of the months of data it read (StockData.rangeVersion) and its result, framed as length, CRC-32 and payload. When the active
+// segment reaches SEGMENT_SIZE it is sealed: an index file listing (key hash, offset) for each of its
+// records is written next to it and a new segment is started. Opening loads the index files of sealed
+// segments and scans only the active one, cutting it off at the first record that is incomplete or
+// fails its CRC, which is what a crash in the middle of an append leaves behind. The key hash covers
+// the range fingerprint and every parameter; lookups read the record back and compare the full key.
+// Because only the months a run read are fingerprinted, appending new months leaves every run that
+// ended earlier a hit.
+//
+// Results on data that was since changed stay in the store until compact() rewrites it with only
+// the records that still match the current data.
+public class ResultStore implements AutoCloseable {
+
+    static final long SEGMENT_SIZE = 8L * 1024 * 1024;
+
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final int INDEX_MAGIC = 0x534D4958; // "SMIX"
+
+    // length + crc, then version, withdrawing, six doubles, two months, final amount, total flow, bankrupt
+    private static final int HEADER_BYTES = 8;
+    private static final int PAYLOAD_BYTES = 8 + 1 + 6 * 8 + 2 * 4 + 8 + 8 + 1;
+    static final int RECORD_BYTES = HEADER_BYTES + PAYLOAD_BYTES;
+
+    private final Path directory;
+    private final long segmentSize;
+    // Key hash to location, the segment number in the high 24 bits and the offset in the low 40
+    private final Map<Long, Long> index = new HashMap<>();
+    private final TreeMap<Integer, FileChannel> segments = new TreeMap<>();
+    private int activeSegment;
+    private long activeSize;
+    private final List<long[]> activeEntries = new ArrayList<>();
+
+    private ResultStore(Path directory, long segmentSize) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                int number = Integer.parseInt(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+                segments.put(number, FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE));
+            }
+        }
+        if (segments.isEmpty()) {
+            openSegment(1);
+            return;
+        }
+        activeSegment = segments.lastKey();
+        for (int number : segments.keySet()) {
+            if (number == activeSegment || !loadIndex(number)) {
+                scan(number);
+            }
+        }
+    }
+
+    // Arguments: <directory>. Compacts the store down to the results of the current stock data.
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: ResultStore <directory>");
+            return;
+        }
+        try (ResultStore store = open(Paths.get(args[0]))) {
+            int before = store.size();
+            store.compact(StockData.getDefault());
+            System.out.println("Kept " + store.size() + " of " + before + " results");
+        }
+    }
+
+    public static ResultStore open(Path directory) throws IOException {
+        return new ResultStore(directory, SEGMENT_SIZE);
+    }
+
+    // Segments sealed at segmentSize bytes instead of SEGMENT_SIZE, so tests can seal a few records
+    static ResultStore open(Path directory, long segmentSize) throws IOException {
+        return new ResultStore(directory, segmentSize);
+    }
+
+    // The store named by -Dsymposium.resultStore, or null when the property is not set
+    public static ResultStore openDefault() throws IOException {
+        String directory = System.getProperty("symposium.resultStore");
+        return directory == null ? null : open(Paths.get(directory));
+    }
+
+    // The stored result of config on this data, or null
+    public synchronized SimulationResult get(SimulationConfig config, StockData stockData) {
+        long dataVersion = dataVersion(config, stockData);
+        Long location = index.get(hash(config, dataVersion));
+        if (location == null) {
+            return null;
+        }
+        ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            FileChannel channel = segments.get((int) (location >>> 40));
+            long position = location & 0xFF_FFFF_FFFFL;
+            readFully(channel, record, position);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        record.flip();
+        // A different key with the same hash counts as a miss
+        if (record.remaining() < RECORD_BYTES || dataVersion != record.getLong(HEADER_BYTES) || !config.equals(readConfig(record))) {
+            return null;
+        }
+        return readResult(record);
+    }
+
+    public synchronized void put(SimulationConfig config, StockData stockData, SimulationResult result) {
+        long dataVersion = dataVersion(config, stockData);
+        ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        writeRecord(record, config, dataVersion, result);
+        try {
+            if (activeSize + RECORD_BYTES > segmentSize) {
+                seal();
+            }
+            FileChannel channel = segments.get(activeSegment);
+            while (record.hasRemaining()) {
+                channel.write(record, activeSize + record.position());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        long key = hash(config, dataVersion);
+        index.put(key, location(activeSegment, activeSize));
+        activeEntries.add(new long[]{key, activeSize});
+        activeSize += RECORD_BYTES;
+    }
+
+    // Rewrites the store keeping only records that are still valid on this data. The old segments are
+    // deleted only after the new ones are on disk, a crash before that leaves duplicates that the next
+    // open reads fine.
+    public synchronized void compact(StockData stockData) throws IOException {
+        TreeMap<Integer, FileChannel> old = new TreeMap<>(segments);
+        List<ByteBuffer> kept = new ArrayList<>();
+        for (long location : index.values()) {
+            ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            FileChannel channel = old.get((int) (location >>> 40));
+            long position = location & 0xFF_FFFF_FFFFL;
+            readFully(channel, record, position);
+            record.flip();
+            if (record.getLong(HEADER_BYTES) == dataVersion(readConfig(record), stockData)) {
+                kept.add(record);
+            }
+        }
+
+        index.clear();
+        segments.clear();
+        activeEntries.clear();
+        openSegment(old.lastKey() + 1);
+        for (ByteBuffer record : kept) {
+            if (activeSize + RECORD_BYTES > segmentSize) {
+                seal();
+            }
+            long key = hash(readConfig(record), record.getLong(HEADER_BYTES));
+            while (record.hasRemaining()) {
+                segments.get(activeSegment).write(record, activeSize + record.position());
+            }
+            index.put(key, location(activeSegment, activeSize));
+            activeEntries.add(new long[]{key, activeSize});
+            activeSize += RECORD_BYTES;
+        }
+        for (FileChannel channel : segments.values()) {
+            channel.force(true);
+        }
+
+        for (Map.Entry<Integer, FileChannel> segment : old.entrySet()) {
+            segment.getValue().close();
+            Files.deleteIfExists(segmentFile(segment.getKey()));
+            Files.deleteIfExists(indexFile(segment.getKey()));
+        }
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    // Makes the appended records durable
+    public synchronized void flush() throws IOException {
+        segments.get(activeSegment).force(false);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        flush();
+        for (FileChannel channel : segments.values()) {
+            channel.close();
+        }
+    }
+
+    private void openSegment(int number) throws IOException {
+        segments.put(number, FileChannel.open(segmentFile(number),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE));
+        activeSegment = number;
+        activeSize = 0;
+    }
+
+    // Writes the active segment's index file and starts the next segment
+    private void seal() throws IOException {
+        FileChannel active = segments.get(activeSegment);
+        active.force(true);
+        ByteBuffer out = ByteBuffer.allocate(12 + activeEntries.size() * 16 + 4).order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(INDEX_MAGIC).putLong(activeSize);
+        for (long[] entry : activeEntries) {
+            out.putLong(entry[0]).putLong(entry[1]);
+        }
+        out.putInt(crc(out, 0, out.position()));
+        out.flip();
+        Path file = indexFile(activeSegment);
+        Path temporary = directory.resolve(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+        activeEntries.clear();
+        openSegment(activeSegment + 1);
+    }
+
+    // Loads a sealed segment's index file, false when it is missing or does not match the segment
+    private boolean loadIndex(int number) throws IOException {
+        Path file = indexFile(number);
+        if (!Files.exists(file)) {
+            return false;
+        }
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+        if (in.limit() < 16 || (in.limit() - 16) % 16 != 0 || in.getInt(0) != INDEX_MAGIC
+                || in.getInt(in.limit() - 4) != crc(in, 0, in.limit() - 4)
+                || in.getLong(4) != segments.get(number).size()) {
+            return false;
+        }
+        for (int p = 12; p < in.limit() - 4; p += 16) {
+            index.put(in.getLong(p), location(number, in.getLong(p + 8)));
+        }
+        return true;
+    }
+
+    // Reads every record of a segment, truncating it at the first damaged one
+    private void scan(int number) throws IOException {
+        FileChannel channel = segments.get(number);
+        long size = channel.size();
+        ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        long position = 0;
+        while (position + RECORD_BYTES <= size) {
+            record.clear();
+            readFully(channel, record, position);
+            if (record.getInt(0) != PAYLOAD_BYTES || record.getInt(4) != crc(record, HEADER_BYTES, PAYLOAD_BYTES)) {
+                break;
+            }
+            long key = hash(readConfig(record), record.getLong(HEADER_BYTES));
+            index.put(key, location(number, position));
+            if (number == activeSegment) {
+                activeEntries.add(new long[]{key, position});
+            }
+            position += RECORD_BYTES;
+        }
+        if (position < size) {
+            channel.truncate(position);
+            channel.force(true);
+        }
+        if (number == activeSegment) {
+            activeSize = position;
+        }
+    }
+
+    // Reads until the buffer is full or the file ends
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) > 0) {
+            continue;
+        }
+    }
+
+    private Path segmentFile(int number) {
+        return directory.resolve(String.format("%06d%s", number, SEGMENT_SUFFIX));
+    }
+
+    private Path indexFile(int number) {
+        return directory.resolve(String.format("%06d%s", number, INDEX_SUFFIX));
+    }
+
+    private static long location(int segment, long offset) {
+        return ((long) segment << 40) | offset;
+    }
+
+    private static void writeRecord(ByteBuffer record, SimulationConfig config, long dataVersion, SimulationResult result) {
+        record.putInt(PAYLOAD_BYTES).putInt(0);
+        record.putLong(dataVersion);
+        record.put((byte) (config.isWithdrawing() ? 1 : 0));
+        record.putDouble(config.getStartAmount()).putDouble(config.getFlow());
+        record.putDouble(config.getStartAlloc()).putDouble(config.getEndAlloc());
+        record.putDouble(config.getFixedYield()).putDouble(config.getAnnualIncrease());
+        record.putInt(epochMonth(config.getStartDate())).putInt(epochMonth(config.getEndDate()));
+        record.putDouble(result.getFinalAmount()).putDouble(result.getTotalFlow());
+        record.put((byte) (result.isBankrupt() ? 1 : 0));
+        record.putInt(4, crc(record, HEADER_BYTES, PAYLOAD_BYTES));
+        record.flip();
+    }
+
+    private static SimulationConfig readConfig(ByteBuffer record) {
+        int p = HEADER_BYTES + 8;
+        return new SimulationConfig(record.get(p) == 1,
+                record.getDouble(p + 1), record.getDouble(p + 9), record.getDouble(p + 17),
+                record.getDouble(p + 25), record.getDouble(p + 33), record.getDouble(p + 41),
+                fromEpochMonth(record.getInt(p + 49)), fromEpochMonth(record.getInt(p + 53)));
+    }
+
+    private static SimulationResult readResult(ByteBuffer record) {
+        int p = HEADER_BYTES + 8 + 1 + 6 * 8 + 2 * 4;
+        return new SimulationResult(record.getDouble(p), record.getDouble(p + 8), record.get(p + 16) == 1);
+    }
+
+    private static int epochMonth(YearMonth month) {
+        return month.getYear() * 12 + month.getMonthValue() - 1;
+    }
+
+    private static YearMonth fromEpochMonth(int month) {
+        return YearMonth.of(Math.floorDiv(month, 12), Math.floorMod(month, 12) + 1);
+    }
+
+    private static long dataVersion(SimulationConfig config, StockData stockData) {
+        return stockData.rangeVersion(config.getStartDate(), config.getEndDate());
+    }
+
+    // 64-bit hash of the data version and every parameter
+    static long hash(SimulationConfig config, long dataVersion) {
+        long hash = mix(dataVersion, config.isWithdrawing() ? 1 : 0);
+        hash = mix(hash, Double.doubleToLongBits(config.getStartAmount()));
+        hash = mix(hash, Double.doubleToLongBits(config.getFlow()));
+        hash = mix(hash, Double.doubleToLongBits(config.getStartAlloc()));
+        hash = mix(hash, Double.doubleToLongBits(config.getEndAlloc()));
+        hash = mix(hash, Double.doubleToLongBits(config.getFixedYield()));
+        hash = mix(hash, Double.doubleToLongBits(config.getAnnualIncrease()));
+        hash = mix(hash, epochMonth(config.getStartDate()));
+        return mix(hash, epochMonth(config.getEndDate()));
+    }
+
+    private static long mix(long hash, long value) {
+        hash = (hash ^ value) * 0x9E3779B97F4A7C15L;
+        return hash ^ (hash >>> 29);
+    }
+
+    private static int crc(ByteBuffer buffer, int offset, int length) {
+        CRC32 crc = new CRC32();
+        ByteBuffer slice = buffer.duplicate();
+        slice.limit(offset + length).position(offset);
+        crc.update(slice);
+        return (int) crc.getValue();
+    }
+}
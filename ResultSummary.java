@@ -0,0 +1,99 @@
+package symposium;
+
+// Constant-size summary of many runs of one configuration: sketched percentiles and running stats of the
+// final amounts and flows, plus how many runs failed. Each worker fills its own summary and they are
+// merged afterwards; merging in a fixed order gives the same numbers for any parallelism. Not thread safe.
+public class ResultSummary {
+
+    // Percentiles written by the experiments
+    static final double[] PERCENTILES = {5, 25, 50, 75, 95};
+    static final String COLUMN_HEADERS = "\tP5\tP25\tP50\tP75\tP95\tFailure Rate";
+
+    private final QuantileSketch finalAmounts = new QuantileSketch();
+    private final QuantileSketch totalFlows = new QuantileSketch();
+    private final RunningStats finalStats = new RunningStats();
+    private final RunningStats flowStats = new RunningStats();
+    // Plain sums in the order the runs were added, what the experiments have always averaged
+    private double finalSum = 0;
+    private double flowSum = 0;
+    private long failures = 0;
+
+    // Adds one run, failed is whatever counts as a failure for the experiment
+    public void add(SimulationResult result, boolean failed) {
+        finalAmounts.add(result.getFinalAmount());
+        totalFlows.add(result.getTotalFlow());
+        finalStats.add(result.getFinalAmount());
+        flowStats.add(result.getTotalFlow());
+        finalSum += result.getFinalAmount();
+        flowSum += result.getTotalFlow();
+        if (failed) {
+            failures++;
+        }
+    }
+
+    public void merge(ResultSummary other) {
+        finalAmounts.merge(other.finalAmounts);
+        totalFlows.merge(other.totalFlows);
+        finalStats.merge(other.finalStats);
+        flowStats.merge(other.flowStats);
+        finalSum += other.finalSum;
+        flowSum += other.flowSum;
+        failures += other.failures;
+    }
+
+    public long getCount() {
+        return finalStats.getCount();
+    }
+
+    public double getMeanFinalAmount() {
+        return finalSum / getCount();
+    }
+
+    public double getMeanTotalFlow() {
+        return flowSum / getCount();
+    }
+
+    public double getFinalAmountStandardDeviation() {
+        return finalStats.getStandardDeviation();
+    }
+
+    public double getTotalFlowStandardDeviation() {
+        return flowStats.getStandardDeviation();
+    }
+
+    public double getMinFinalAmount() {
+        return finalStats.getMin();
+    }
+
+    public double getMaxFinalAmount() {
+        return finalStats.getMax();
+    }
+
+    // Final amount at the given percentile (0-100), within the sketch accuracy
+    public double getFinalAmountPercentile(double percentile) {
+        return finalAmounts.getPercentile(percentile);
+    }
+
+    // Total contributed or withdrawn at the given percentile (0-100), within the sketch accuracy
+    public double getTotalFlowPercentile(double percentile) {
+        return totalFlows.getPercentile(percentile);
+    }
+
+    public long getFailures() {
+        return failures;
+    }
+
+    public double getFailureRate() {
+        return (double) failures / getCount();
+    }
+
+    // Tab separated final amount percentiles and failure rate, matching COLUMN_HEADERS
+    public String formatColumns() {
+        StringBuilder columns = new StringBuilder();
+        for (double percentile : PERCENTILES) {
+            columns.append(String.format("\t%.2f", getFinalAmountPercentile(percentile)));
+        }
+        columns.append(String.format("\t%.4f", getFailureRate()));
+        return columns.toString();
+    }
+}
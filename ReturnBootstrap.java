@@ -0,0 +1,44 @@
+package symposium;
+
+import java.util.SplittableRandom;
+
+// Draws synthetic monthly stock market changes by resampling the historical monthly returns.
+// With a mean block length of 1 every month is drawn independently, with a longer mean block
+// length it is the stationary block bootstrap: runs of consecutive historical months with a
+// geometrically distributed length, wrapping around the end of the data, which keeps the
+// month-to-month autocorrelation of the real market.
+public class ReturnBootstrap {
+
+    private final double[] returns;
+    private final double restartProbability;
+    private final SplittableRandom random;
+    private int position = -1;
+
+    public ReturnBootstrap(StockData stockData, double meanBlockLength, SplittableRandom random) {
+        if (meanBlockLength < 1) {
+            throw new IllegalArgumentException("Mean block length must be at least one month.");
+        }
+
+        // Every month that has a previous month to compare against
+        this.returns = new double[stockData.getMonthCount() - 1];
+        for (int i = 0; i < returns.length; i++) {
+            returns[i] = stockData.getPercentChange(i + 1);
+        }
+        this.restartProbability = 1 / meanBlockLength;
+        this.random = random;
+    }
+
+    // Forget the current block so the next path starts at a random month
+    public void startPath() {
+        position = -1;
+    }
+
+    public double nextPercentChange() {
+        if (position < 0 || random.nextDouble() < restartProbability) {
+            position = random.nextInt(returns.length);
+        } else if (++position == returns.length) {
+            position = 0;
+        }
+        return returns[position];
+    }
+}
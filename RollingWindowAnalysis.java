@@ -0,0 +1,216 @@
+package symposium;
+
+import java.time.YearMonth;
+import java.util.Arrays;
+
+// Evaluates a strategy over every historical start month for a given horizon.
+//
+// With a fixed allocation every month of an accumulation is a linear map of the state
+// (stock, fixed, contribution, total contributed): the market change, January rebalance,
+// contribution increase, dividend, yield and contribution are all multiplications and sums.
+// A window is then the product of its monthly 4x4 matrices. The months are cut into blocks as
+// long as the horizon, and each block keeps running products from its start and to its end, so
+// any window is one suffix product times one prefix product. Every month is multiplied in twice
+// per horizon no matter how many windows share it. Glide paths and withdrawals are not linear,
+// those windows are run directly by a BatchSimulator.
+public class RollingWindowAnalysis {
+
+    private final StockData stockData;
+
+    public RollingWindowAnalysis(StockData stockData) {
+        this.stockData = stockData;
+    }
+
+    // Number of start months that have a full horizon of data after them
+    public int windowCount(int months) {
+        return Math.max(0, stockData.getMonthCount() - months);
+    }
+
+    // Accumulation over every start month, matrix products when the allocation is fixed
+    public Windows investWindows(double startAmount, double contribution, double startAlloc, double endAlloc,
+                                 double fixedYield, double annualIncrease, int months) {
+        if (startAlloc != endAlloc || months == 0) {
+            return simulateWindows(false, startAmount, contribution, startAlloc, endAlloc, fixedYield, annualIncrease, months);
+        }
+
+        int count = windowCount(months);
+        double[] finalAmounts = new double[count];
+        double[] totalFlows = new double[count];
+        if (count == 0) {
+            return new Windows(finalAmounts, totalFlows);
+        }
+
+        double a = startAlloc;
+        double dividendGrowth = 1 + ParentSimulator.DEFAULT_DIVIDEND / 4;
+        double fixedGrowth = 1 + (fixedYield / 12 / 100);
+        double contributionGrowth = 1 + annualIncrease / 100;
+
+        // State right after the setup month: rebalanced with the first contribution added
+        double[] start = {
+                startAmount * a + contribution * a,
+                startAmount * (1 - a) + contribution * (1 - a),
+                contribution,
+                0
+        };
+
+        // Monthly matrices for index 1 .. last, stored flat as 16 doubles per month
+        int last = stockData.getMonthCount() - 1;
+        double[] monthly = new double[(last + 1) * 16];
+        for (int m = 1; m <= last; m++) {
+            int month = stockData.calendarMonth(m);
+            monthMatrix(monthly, m * 16, 1 + stockData.getPercentChange(m) / 100, month == 1,
+                    month % 3 == 0 ? dividendGrowth : 1, fixedGrowth, contributionGrowth, a);
+        }
+
+        // prefix[j] = M_j ... M_blockStart, suffix[i] = M_blockEnd ... M_i, with blocks of size months starting at 1
+        double[] prefix = new double[(last + 1) * 16];
+        double[] suffix = new double[(last + 1) * 16];
+        for (int blockStart = 1; blockStart <= last; blockStart += months) {
+            int blockEnd = Math.min(last, blockStart + months - 1);
+            System.arraycopy(monthly, blockStart * 16, prefix, blockStart * 16, 16);
+            for (int j = blockStart + 1; j <= blockEnd; j++) {
+                multiply(monthly, j * 16, prefix, (j - 1) * 16, prefix, j * 16);
+            }
+            System.arraycopy(monthly, blockEnd * 16, suffix, blockEnd * 16, 16);
+            for (int i = blockEnd - 1; i >= blockStart; i--) {
+                multiply(suffix, (i + 1) * 16, monthly, i * 16, suffix, i * 16);
+            }
+        }
+
+        double[] state = new double[4];
+        double[] next = new double[4];
+        for (int p = 0; p < count; p++) {
+            int first = p + 1;
+            int end = p + months;
+            apply(suffix, first * 16, start, state);
+            if ((end - 1) / months != (first - 1) / months) {
+                // Window runs into the next block
+                apply(prefix, end * 16, state, next);
+                System.arraycopy(next, 0, state, 0, 4);
+            }
+            finalAmounts[p] = state[0] + state[1];
+            totalFlows[p] = state[3];
+        }
+        return new Windows(finalAmounts, totalFlows);
+    }
+
+    // Withdrawal over every start month, run directly since the withdrawal rule is not linear
+    public Windows withdrawWindows(double startAmount, double annualWithdrawalPercentage, double startAlloc, double endAlloc,
+                                   double fixedYield, double annualIncrease, int months) {
+        return simulateWindows(true, startAmount, annualWithdrawalPercentage, startAlloc, endAlloc, fixedYield, annualIncrease, months);
+    }
+
+    private Windows simulateWindows(boolean withdrawing, double startAmount, double flow, double startAlloc, double endAlloc,
+                                    double fixedYield, double annualIncrease, int months) {
+        int count = windowCount(months);
+        BatchSimulator batch = new BatchSimulator(withdrawing, count, stockData);
+        for (int p = 0; p < count; p++) {
+            YearMonth startDate = stockData.monthAt(p);
+            batch.add(startAmount, flow, startAlloc, endAlloc, fixedYield, annualIncrease, startDate, startDate.plusMonths(months));
+        }
+        batch.runSimulation();
+
+        double[] finalAmounts = new double[count];
+        double[] totalFlows = new double[count];
+        for (int p = 0; p < count; p++) {
+            finalAmounts[p] = batch.getFinalAmount(p);
+            totalFlows[p] = batch.getTotalFlow(p);
+        }
+        return new Windows(finalAmounts, totalFlows);
+    }
+
+    // One month of InvestSimulator.stepMonth as a row-major matrix over (stock, fixed, contribution, total)
+    private static void monthMatrix(double[] out, int o, double growth, boolean january, double dividendGrowth,
+                                    double fixedGrowth, double contributionGrowth, double a) {
+        // Contribution after the January increase
+        double c = january ? contributionGrowth : 1;
+        if (january) {
+            // Rebalance both sides after the market change
+            out[o] = dividendGrowth * a * growth;
+            out[o + 1] = dividendGrowth * a;
+            out[o + 4] = fixedGrowth * (1 - a) * growth;
+            out[o + 5] = fixedGrowth * (1 - a);
+        } else {
+            out[o] = dividendGrowth * growth;
+            out[o + 1] = 0;
+            out[o + 4] = 0;
+            out[o + 5] = fixedGrowth;
+        }
+        out[o + 2] = a * c;
+        out[o + 3] = 0;
+        out[o + 6] = (1 - a) * c;
+        out[o + 7] = 0;
+
+        out[o + 8] = 0;
+        out[o + 9] = 0;
+        out[o + 10] = c;
+        out[o + 11] = 0;
+
+        // The total is tracked before the increase
+        out[o + 12] = 0;
+        out[o + 13] = 0;
+        out[o + 14] = 1;
+        out[o + 15] = 1;
+    }
+
+    // out = left * right, all 4x4 row-major
+    private static void multiply(double[] left, int l, double[] right, int r, double[] out, int o) {
+        for (int i = 0; i < 4; i++) {
+            for (int j = 0; j < 4; j++) {
+                double sum = 0;
+                for (int k = 0; k < 4; k++) {
+                    sum += left[l + i * 4 + k] * right[r + k * 4 + j];
+                }
+                out[o + i * 4 + j] = sum;
+            }
+        }
+    }
+
+    // out = matrix * vector
+    private static void apply(double[] matrix, int m, double[] vector, double[] out) {
+        for (int i = 0; i < 4; i++) {
+            out[i] = matrix[m + i * 4] * vector[0] + matrix[m + i * 4 + 1] * vector[1]
+                    + matrix[m + i * 4 + 2] * vector[2] + matrix[m + i * 4 + 3] * vector[3];
+        }
+    }
+
+    // Results of every window, window i starts at stock data index i
+    public static class Windows {
+        private final double[] finalAmounts;
+        private final double[] totalFlows;
+
+        Windows(double[] finalAmounts, double[] totalFlows) {
+            this.finalAmounts = finalAmounts;
+            this.totalFlows = totalFlows;
+        }
+
+        public int size() {
+            return finalAmounts.length;
+        }
+
+        public double getFinalAmount(int window) {
+            return finalAmounts[window];
+        }
+
+        public double getTotalFlow(int window) {
+            return totalFlows[window];
+        }
+
+        // Final amount at the given percentile (0-100), nearest rank
+        public double getFinalAmountPercentile(double percentile) {
+            return percentile(finalAmounts, percentile);
+        }
+
+        // Total contributed or withdrawn at the given percentile (0-100), nearest rank
+        public double getTotalFlowPercentile(double percentile) {
+            return percentile(totalFlows, percentile);
+        }
+
+        private static double percentile(double[] values, double percentile) {
+            double[] sorted = values.clone();
+            Arrays.sort(sorted);
+            int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+            return sorted[Math.min(sorted.length - 1, Math.max(0, rank - 1))];
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package symposium;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.List;
+
+public class RollingWindowExperiment {
+
+    private static final int[] YEARS = {10, 15, 20, 25, 30, 35, 40};
+    private static final double[] PERCENTILES = {0, 10, 25, 50, 75, 90, 100};
+
+    // Every start month for every horizon, reported as a distribution instead of an average
+    public static void main(String[] args) {
+        StockData stockData = StockData.getDefault();
+        RollingWindowAnalysis analysis = new RollingWindowAnalysis(stockData);
+
+        try (ExperimentExecutor executor = new ExperimentExecutor(ExperimentExecutor.parallelismFromArgs(args));
+             FileWriter writer = new FileWriter("rolling_window_results.txt")) {
+            writer.write("Years\tWindows\tMin\tP10\tP25\tP50\tP75\tP90\tMax\n");
+
+            // Same baseline as InvestmentExperiment
+            writer.write("\nInvestment Final Balance (1000/month, 80/20, 2% yield):\n");
+            List<RollingWindowAnalysis.Windows> invest = executor.map(YEARS.length,
+                    i -> analysis.investWindows(0, 1000, 0.80, 0.80, 2.0, 0, YEARS[i] * 12));
+            for (int i = 0; i < YEARS.length; i++) {
+                writeDistribution(writer, YEARS[i], invest.get(i));
+            }
+
+            // Same baseline as WithdrawExperiment
+            writer.write("\nWithdrawal Final Balance (1,000,000, 4%, 80/20, 2% yield):\n");
+            List<RollingWindowAnalysis.Windows> withdraw = executor.map(YEARS.length,
+                    i -> analysis.withdrawWindows(1_000_000, 0.04, 0.80, 0.80, 2.0, 0, YEARS[i] * 12));
+            for (int i = 0; i < YEARS.length; i++) {
+                writeDistribution(writer, YEARS[i], withdraw.get(i));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void writeDistribution(FileWriter writer, int years, RollingWindowAnalysis.Windows windows) throws IOException {
+        writer.write(String.format("%d\t%d", years, windows.size()));
+        if (windows.size() > 0) {
+            for (double percentile : PERCENTILES) {
+                writer.write(String.format("\t%.2f", windows.getFinalAmountPercentile(percentile)));
+            }
+        }
+        writer.write(String.format("%n"));
+    }
+}
@@ -0,0 +1,68 @@
+package symposium;
+
+// Online count, mean, variance, minimum and maximum (Welford's method). Two sets of stats merge
+// exactly as if every value had been added to one, so parallel workers can each keep their own.
+// Not thread safe.
+public class RunningStats {
+
+    private long count = 0;
+    private double mean = 0;
+    private double m2 = 0;      // Sum of squared differences from the mean
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public void add(double value) {
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    public void merge(RunningStats other) {
+        if (other.count == 0) {
+            return;
+        }
+        if (count == 0) {
+            count = other.count;
+            mean = other.mean;
+            m2 = other.m2;
+            min = other.min;
+            max = other.max;
+            return;
+        }
+        long total = count + other.count;
+        double delta = other.mean - mean;
+        mean += delta * other.count / total;
+        m2 += other.m2 + delta * delta * ((double) count * other.count / total);
+        count = total;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return count == 0 ? Double.NaN : mean;
+    }
+
+    // Sample variance, zero for a single value
+    public double getVariance() {
+        return count < 2 ? 0 : m2 / (count - 1);
+    }
+
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+}
@@ -0,0 +1,49 @@
+package symposium;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.List;
+
+public class SafeWithdrawalExperiment {
+
+    private static final double INITIAL_BALANCE = 1_000_000;
+    private static final double FIXED_YIELD = 2.0;
+    private static final double ANNUAL_INCREASE = 0;
+    private static final double TARGET_SUCCESS = 0.95;
+    private static final double[] ALLOCATION_PERCENTS = {20, 40, 60, 80, 100};
+    private static final int[] YEARS = {10, 15, 20, 25, 30, 35};
+
+    // Highest withdrawal percentage that keeps the starting balance in 95% of all historical windows
+    public static void main(String[] args) {
+        SafeWithdrawalSolver solver = new SafeWithdrawalSolver(StockData.getDefault(), INITIAL_BALANCE, FIXED_YIELD,
+                ANNUAL_INCREASE, INITIAL_BALANCE, TARGET_SUCCESS);
+
+        try (ExperimentExecutor executor = new ExperimentExecutor(ExperimentExecutor.parallelismFromArgs(args));
+             FileWriter writer = new FileWriter("safe_withdrawal_results.txt")) {
+            writer.write("Allocation");
+            for (int years : YEARS) {
+                writer.write("\t" + years + " Years");
+            }
+            writer.write("\n");
+
+            // Every cell of the table is solved in parallel
+            int cells = ALLOCATION_PERCENTS.length * YEARS.length;
+            List<Double> rates = executor.map(cells, cell -> {
+                double allocation = ALLOCATION_PERCENTS[cell / YEARS.length] / 100;
+                return solver.solve(allocation, allocation, YEARS[cell % YEARS.length] * 12);
+            });
+
+            for (int a = 0; a < ALLOCATION_PERCENTS.length; a++) {
+                writer.write(String.format("%.2f", ALLOCATION_PERCENTS[a]));
+                for (int y = 0; y < YEARS.length; y++) {
+                    // Not even 0% keeps the starting balance often enough
+                    double rate = rates.get(a * YEARS.length + y);
+                    writer.write(Double.isNaN(rate) ? "\tn/a" : String.format("\t%.3f", rate * 100));
+                }
+                writer.write("\n");
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package symposium;
+
+import java.time.YearMonth;
+import java.util.Arrays;
+
+// Finds the highest annual withdrawal percentage that a target fraction of historical windows survive.
+// A window survives when it never goes bankrupt and ends with at least minimumFinalAmount.
+//
+// The rate is found by bisection. Every window is run as a lane of one BatchSimulator, so a
+// bankrupt lane stops stepping right away. A higher withdrawal rate never leaves more money in a
+// window, so each window remembers the highest rate it survived and the lowest rate it failed, and
+// later bisection steps only simulate the windows whose outcome is still undecided.
+//
+// A surviving lane is not stopped early the way a bankrupt one is. Success is only certain once no
+// remaining month can take the balance below minimumFinalAmount, and with that floor at the starting
+// balance a window can lose it again in any month it still has to run: a bound from the worst
+// remaining returns is too loose to stop a lane before its last months, and the exact answer takes
+// simulating those months anyway. The known-survived rates above are where success skips work.
+public class SafeWithdrawalSolver {
+
+    private static final double MAX_RATE = 1.0;         // 100% a year
+    private static final double TOLERANCE = 0.00001;    // 0.001 percentage points
+
+    private final StockData stockData;
+    private final double startAmount;
+    private final double fixedYield;
+    private final double annualIncrease;
+    private final double minimumFinalAmount;
+    private final double targetSuccessRate;
+
+    public SafeWithdrawalSolver(StockData stockData, double startAmount, double fixedYield, double annualIncrease,
+                                double minimumFinalAmount, double targetSuccessRate) {
+        this.stockData = stockData;
+        this.startAmount = startAmount;
+        this.fixedYield = fixedYield;
+        this.annualIncrease = annualIncrease;
+        this.minimumFinalAmount = minimumFinalAmount;
+        this.targetSuccessRate = targetSuccessRate;
+    }
+
+    // Highest rate (as a fraction, 0.04 is 4%) that survives the target fraction of windows of this length,
+    // or NaN when not even withdrawing nothing reaches the target
+    public double solve(double startAlloc, double endAlloc, int months) {
+        int windows = Math.max(0, stockData.getMonthCount() - months);
+        if (windows == 0) {
+            throw new IllegalArgumentException("Stock data not available for the specified months.");
+        }
+
+        double[] survived = new double[windows];    // Highest rate known to survive
+        double[] failed = new double[windows];      // Lowest rate known to fail
+        Arrays.fill(survived, Double.NEGATIVE_INFINITY);
+        Arrays.fill(failed, Double.POSITIVE_INFINITY);
+        int needed = (int) Math.ceil(targetSuccessRate * windows);
+
+        double low = 0;
+        double high = MAX_RATE;
+        if (countSurvivors(low, startAlloc, endAlloc, months, survived, failed) < needed) {
+            return Double.NaN;
+        }
+        if (countSurvivors(high, startAlloc, endAlloc, months, survived, failed) >= needed) {
+            return high;
+        }
+        while (high - low > TOLERANCE) {
+            double mid = (low + high) / 2;
+            if (countSurvivors(mid, startAlloc, endAlloc, months, survived, failed) >= needed) {
+                low = mid;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Fraction of windows of this length that survive the given rate
+    public double successRate(double rate, double startAlloc, double endAlloc, int months) {
+        int windows = Math.max(0, stockData.getMonthCount() - months);
+        double[] survived = new double[windows];
+        double[] failed = new double[windows];
+        Arrays.fill(survived, Double.NEGATIVE_INFINITY);
+        Arrays.fill(failed, Double.POSITIVE_INFINITY);
+        return windows == 0 ? 0 : (double) countSurvivors(rate, startAlloc, endAlloc, months, survived, failed) / windows;
+    }
+
+    private int countSurvivors(double rate, double startAlloc, double endAlloc, int months, double[] survived, double[] failed) {
+        int survivors = 0;
+        int[] undecided = new int[survived.length];
+        int pending = 0;
+        for (int w = 0; w < survived.length; w++) {
+            if (rate <= survived[w]) {
+                survivors++;
+            } else if (rate < failed[w]) {
+                undecided[pending++] = w;
+            }
+        }
+        if (pending == 0) {
+            return survivors;
+        }
+
+        BatchSimulator batch = new BatchSimulator(true, pending, stockData);
+        for (int i = 0; i < pending; i++) {
+            YearMonth startDate = stockData.monthAt(undecided[i]);
+            batch.add(startAmount, rate, startAlloc, endAlloc, fixedYield, annualIncrease, startDate, startDate.plusMonths(months));
+        }
+        batch.runSimulation();
+
+        for (int i = 0; i < pending; i++) {
+            int w = undecided[i];
+            if (!batch.isBankrupt(i) && batch.getFinalAmount(i) >= minimumFinalAmount) {
+                survived[w] = rate;
+                survivors++;
+            } else {
+                failed[w] = rate;
+            }
+        }
+        return survivors;
+    }
+}
@@ -0,0 +1,152 @@
+package symposium;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Just enough JSON for one flat object per line: string, number, boolean and null values.
+// Values come back as strings (numbers as written, null as null); nested objects and arrays are rejected.
+public class SimpleJson {
+
+    public static Map<String, String> parseObject(String text) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        int[] position = {skipSpaces(text, 0)};
+        expect(text, position, '{');
+        if (peek(text, position) == '}') {
+            position[0]++;
+        } else {
+            while (true) {
+                String key = parseString(text, position);
+                expect(text, position, ':');
+                fields.put(key, parseValue(text, position));
+                char next = peek(text, position);
+                position[0]++;
+                if (next == '}') {
+                    break;
+                }
+                if (next != ',') {
+                    throw new IllegalArgumentException("Expected , or } at " + (position[0] - 1));
+                }
+            }
+        }
+        if (skipSpaces(text, position[0]) != text.length()) {
+            throw new IllegalArgumentException("Unexpected text after the object");
+        }
+        return fields;
+    }
+
+    // Appends value as a quoted JSON string
+    public static void appendString(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+
+    private static String parseValue(String text, int[] position) {
+        char c = peek(text, position);
+        if (c == '"') {
+            return parseString(text, position);
+        }
+        if (c == '{' || c == '[') {
+            throw new IllegalArgumentException("Nested values are not supported at " + position[0]);
+        }
+        int start = position[0];
+        int end = start;
+        while (end < text.length() && ",}] \t\r\n".indexOf(text.charAt(end)) < 0) {
+            end++;
+        }
+        String literal = text.substring(start, end);
+        position[0] = end;
+        if (literal.equals("null")) {
+            return null;
+        }
+        if (literal.equals("true") || literal.equals("false")) {
+            return literal;
+        }
+        try {
+            Double.parseDouble(literal);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value '" + literal + "' at " + start);
+        }
+        return literal;
+    }
+
+    private static String parseString(String text, int[] position) {
+        expect(text, position, '"');
+        StringBuilder value = new StringBuilder();
+        int i = position[0];
+        while (true) {
+            if (i >= text.length()) {
+                throw new IllegalArgumentException("Unterminated string");
+            }
+            char c = text.charAt(i++);
+            if (c == '"') {
+                break;
+            }
+            if (c != '\\') {
+                value.append(c);
+                continue;
+            }
+            if (i >= text.length()) {
+                throw new IllegalArgumentException("Unterminated string");
+            }
+            char escaped = text.charAt(i++);
+            switch (escaped) {
+                case '"': case '\\': case '/': value.append(escaped); break;
+                case 'b': value.append('\b'); break;
+                case 'f': value.append('\f'); break;
+                case 'n': value.append('\n'); break;
+                case 'r': value.append('\r'); break;
+                case 't': value.append('\t'); break;
+                case 'u':
+                    if (i + 4 > text.length()) {
+                        throw new IllegalArgumentException("Invalid unicode escape");
+                    }
+                    value.append((char) Integer.parseInt(text.substring(i, i + 4), 16));
+                    i += 4;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Invalid escape \\" + escaped);
+            }
+        }
+        position[0] = i;
+        return value.toString();
+    }
+
+    private static void expect(String text, int[] position, char expected) {
+        if (peek(text, position) != expected) {
+            throw new IllegalArgumentException("Expected " + expected + " at " + position[0]);
+        }
+        position[0]++;
+    }
+
+    // Next character after any spaces, leaves the position on it
+    private static char peek(String text, int[] position) {
+        position[0] = skipSpaces(text, position[0]);
+        if (position[0] >= text.length()) {
+            throw new IllegalArgumentException("Unexpected end of line");
+        }
+        return text.charAt(position[0]);
+    }
+
+    private static int skipSpaces(String text, int i) {
+        while (i < text.length() && Character.isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+}
@@ -0,0 +1,166 @@
+package symposium;
+
+import java.time.YearMonth;
+import java.util.Objects;
+
+// Every parameter of one simulator run as an immutable value. Two configs are equal exactly when the
+// runs would be, so they can be deduplicated or used as keys. The with methods return changed copies.
+public class SimulationConfig {
+
+    // One reusable simulator of each kind per worker thread
+    private static final ThreadLocal<InvestSimulator> INVEST_SIMULATORS = ExperimentExecutor.perThread(InvestSimulator::new);
+    private static final ThreadLocal<WithdrawSimulator> WITHDRAW_SIMULATORS = ExperimentExecutor.perThread(WithdrawSimulator::new);
+
+    private final boolean withdrawing;
+    private final double startAmount;
+    private final double flow;              // Monthly contribution, or annual withdrawal percentage when withdrawing
+    private final double startAlloc;
+    private final double endAlloc;
+    private final double fixedYield;
+    private final double annualIncrease;
+    private final YearMonth startDate;
+    private final YearMonth endDate;
+
+    public SimulationConfig(boolean withdrawing, double startAmount, double flow, double startAlloc, double endAlloc,
+                            double fixedYield, double annualIncrease, YearMonth startDate, YearMonth endDate) {
+        this.withdrawing = withdrawing;
+        this.startAmount = startAmount;
+        this.flow = flow;
+        this.startAlloc = startAlloc;
+        this.endAlloc = endAlloc;
+        this.fixedYield = fixedYield;
+        this.annualIncrease = annualIncrease;
+        this.startDate = startDate;
+        this.endDate = endDate;
+    }
+
+    public static SimulationConfig invest(double startAmount, double monthlyContribution, double startAlloc, double endAlloc,
+                                          double fixedYield, double annualIncrease, YearMonth startDate, YearMonth endDate) {
+        return new SimulationConfig(false, startAmount, monthlyContribution, startAlloc, endAlloc, fixedYield, annualIncrease, startDate, endDate);
+    }
+
+    public static SimulationConfig withdraw(double startAmount, double annualWithdrawalPercentage, double startAlloc, double endAlloc,
+                                            double fixedYield, double annualIncrease, YearMonth startDate, YearMonth endDate) {
+        return new SimulationConfig(true, startAmount, annualWithdrawalPercentage, startAlloc, endAlloc, fixedYield, annualIncrease, startDate, endDate);
+    }
+
+    public SimulationConfig withStartAmount(double startAmount) {
+        return new SimulationConfig(withdrawing, startAmount, flow, startAlloc, endAlloc, fixedYield, annualIncrease, startDate, endDate);
+    }
+
+    public SimulationConfig withFlow(double flow) {
+        return new SimulationConfig(withdrawing, startAmount, flow, startAlloc, endAlloc, fixedYield, annualIncrease, startDate, endDate);
+    }
+
+    public SimulationConfig withAllocation(double startAlloc, double endAlloc) {
+        return new SimulationConfig(withdrawing, startAmount, flow, startAlloc, endAlloc, fixedYield, annualIncrease, startDate, endDate);
+    }
+
+    public SimulationConfig withFixedYield(double fixedYield) {
+        return new SimulationConfig(withdrawing, startAmount, flow, startAlloc, endAlloc, fixedYield, annualIncrease, startDate, endDate);
+    }
+
+    public SimulationConfig withAnnualIncrease(double annualIncrease) {
+        return new SimulationConfig(withdrawing, startAmount, flow, startAlloc, endAlloc, fixedYield, annualIncrease, startDate, endDate);
+    }
+
+    public SimulationConfig withDates(YearMonth startDate, YearMonth endDate) {
+        return new SimulationConfig(withdrawing, startAmount, flow, startAlloc, endAlloc, fixedYield, annualIncrease, startDate, endDate);
+    }
+
+    // A new simulator set up for this run
+    public ParentSimulator newSimulator() {
+        return withdrawing
+                ? new WithdrawSimulator(startAmount, flow, startAlloc, endAlloc, fixedYield, annualIncrease, startDate, endDate)
+                : new InvestSimulator(startAmount, flow, startAlloc, endAlloc, fixedYield, annualIncrease, startDate, endDate);
+    }
+
+    // Re-arms a simulator from newSimulator() for another run of this config
+    ParentSimulator reset(ParentSimulator sim) {
+        return withdrawing
+                ? ((WithdrawSimulator) sim).reset(startAmount, flow, startAlloc, endAlloc, fixedYield, annualIncrease, startDate, endDate)
+                : ((InvestSimulator) sim).reset(startAmount, flow, startAlloc, endAlloc, fixedYield, annualIncrease, startDate, endDate);
+    }
+
+    // Runs on this thread's reused simulator, lump sums with a fixed allocation in closed form
+    public SimulationResult run() {
+        if (withdrawing) {
+            return ExperimentExecutor.run(WITHDRAW_SIMULATORS.get()
+                    .reset(startAmount, flow, startAlloc, endAlloc, fixedYield, annualIncrease, startDate, endDate));
+        }
+        InvestSimulator sim = INVEST_SIMULATORS.get().reset(startAmount, flow, startAlloc, endAlloc, fixedYield, annualIncrease, startDate, endDate);
+        if (sim.canRunClosedForm()) {
+            sim.runClosedForm();
+            return SimulationResult.of(sim);
+        }
+        return ExperimentExecutor.run(sim);
+    }
+
+    public boolean isWithdrawing() {
+        return withdrawing;
+    }
+
+    public double getStartAmount() {
+        return startAmount;
+    }
+
+    public double getFlow() {
+        return flow;
+    }
+
+    public double getStartAlloc() {
+        return startAlloc;
+    }
+
+    public double getEndAlloc() {
+        return endAlloc;
+    }
+
+    public double getFixedYield() {
+        return fixedYield;
+    }
+
+    public double getAnnualIncrease() {
+        return annualIncrease;
+    }
+
+    public YearMonth getStartDate() {
+        return startDate;
+    }
+
+    public YearMonth getEndDate() {
+        return endDate;
+    }
+
+    // Doubles compare by their bits, so 0.0 and -0.0 are different runs and NaN equals itself
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SimulationConfig)) {
+            return false;
+        }
+        SimulationConfig other = (SimulationConfig) o;
+        return withdrawing == other.withdrawing
+                && Double.compare(startAmount, other.startAmount) == 0
+                && Double.compare(flow, other.flow) == 0
+                && Double.compare(startAlloc, other.startAlloc) == 0
+                && Double.compare(endAlloc, other.endAlloc) == 0
+                && Double.compare(fixedYield, other.fixedYield) == 0
+                && Double.compare(annualIncrease, other.annualIncrease) == 0
+                && startDate.equals(other.startDate)
+                && endDate.equals(other.endDate);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(withdrawing, startAmount, flow, startAlloc, endAlloc, fixedYield, annualIncrease, startDate, endDate);
+    }
+
+    @Override
+    public String toString() {
+        return (withdrawing ? "withdraw" : "invest") + "(" + startAmount + ", " + flow + ", " + startAlloc + ", " + endAlloc + ", "
+                + fixedYield + ", " + annualIncrease + ", " + startDate + ", " + endDate + ")";
+    }
+}
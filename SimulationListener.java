@@ -0,0 +1,25 @@
+package symposium;
+
+// Receives events from a running simulator, every callback does nothing unless overridden
+public interface SimulationListener {
+
+    // Listener used by default so batch runs pay nothing for logging
+    SimulationListener NONE = new SimulationListener() {
+    };
+
+    // Called after the setup month, after every simulated month and after the final rebalance
+    default void monthStepped(ParentSimulator sim) {
+    }
+
+    // Called every time the balances get rebalanced to the current allocation
+    default void rebalanced(ParentSimulator sim) {
+    }
+
+    // Called when money is taken out of the portfolio
+    default void withdrawal(ParentSimulator sim, double amount) {
+    }
+
+    // Called when both balances went below zero and the simulation stops
+    default void bankruptcy(ParentSimulator sim, double debt) {
+    }
+}
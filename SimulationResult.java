@@ -0,0 +1,32 @@
+package symposium;
+
+// What a finished run produced, copied off the simulator so the simulator can be reset and reused
+public class SimulationResult {
+
+    private final double finalAmount;
+    private final double totalFlow;
+    private final boolean bankrupt;
+
+    public SimulationResult(double finalAmount, double totalFlow, boolean bankrupt) {
+        this.finalAmount = finalAmount;
+        this.totalFlow = totalFlow;
+        this.bankrupt = bankrupt;
+    }
+
+    public static SimulationResult of(ParentSimulator sim) {
+        return new SimulationResult(sim.getFinalAmount(), sim.getTotalFlow(), sim.isBankrupt());
+    }
+
+    public double getFinalAmount() {
+        return finalAmount;
+    }
+
+    // Total contributed, or total withdrawn for the withdrawal phase
+    public double getTotalFlow() {
+        return totalFlow;
+    }
+
+    public boolean isBankrupt() {
+        return bankrupt;
+    }
+}
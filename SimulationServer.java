@@ -0,0 +1,161 @@
+package symposium;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Runs simulations over HTTP on localhost, with the same JSON fields as BatchRunner:
+//   POST /simulate  one JSON object, answers one JSON object (400 when the input is invalid)
+//   POST /batch     JSON Lines, answers JSON Lines in the same order, streamed while it runs
+//   GET  /health    answers ok
+//   GET  /stats     result cache counters
+// Each request runs on its own thread: a virtual thread when the JDK has them (21+), otherwise one
+// of a fixed pool of platform threads, so a burst of requests queues instead of starting thousands
+// of threads. Batch lines fan out over an ExperimentExecutor like the file batch mode does.
+public class SimulationServer {
+
+    static final int DEFAULT_PORT = 8080;
+    static final int MAX_BODY = 64 * 1024;
+    static final int BACKLOG = 1024;
+    static final int BATCH_WINDOW = 256;
+
+    private final HttpServer server;
+    private final ExecutorService requestThreads;
+    private final ExperimentExecutor batchExecutor;
+
+    public SimulationServer(int port, int parallelism) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), BACKLOG);
+        this.requestThreads = requestThreads();
+        this.batchExecutor = new ExperimentExecutor(parallelism);
+        server.setExecutor(requestThreads);
+        server.createContext("/simulate", this::simulate);
+        server.createContext("/batch", this::batch);
+        server.createContext("/health", this::health);
+        server.createContext("/stats", this::stats);
+    }
+
+    // Arguments: [port] [parallelism]
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int parallelism = args.length > 1 ? Integer.parseInt(args[1]) : ExperimentExecutor.defaultParallelism();
+        SimulationServer server = new SimulationServer(port, parallelism);
+        server.start();
+        System.out.println("Simulation service listening on http://localhost:" + server.getPort());
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    // Stops accepting requests and gives running ones up to a second to finish
+    public void stop() {
+        server.stop(1);
+        requestThreads.shutdown();
+        batchExecutor.close();
+    }
+
+    // The bound port, useful when the server was created on port 0
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // Virtual threads are looked up by reflection so the project still builds on Java 17
+    private static ExecutorService requestThreads() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(Math.max(8, 4 * Runtime.getRuntime().availableProcessors()));
+        }
+    }
+
+    private void simulate(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                sendError(exchange, 405, "use POST");
+                return;
+            }
+            String body = readBody(exchange.getRequestBody());
+            if (body == null) {
+                sendError(exchange, 413, "body larger than " + MAX_BODY + " bytes");
+                return;
+            }
+            BatchRunner.Outcome outcome = BatchRunner.runLine(body, null, 0);
+            byte[] response = outcome.format(true).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(outcome.failed() ? 400 : 200, response.length);
+            exchange.getResponseBody().write(response);
+        }
+    }
+
+    private void batch(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                sendError(exchange, 405, "use POST");
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+            exchange.sendResponseHeaders(200, 0);
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8));
+                 Writer out = new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8)) {
+                new BatchRunner(batchExecutor, BATCH_WINDOW).run(in, out, true, true);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void health(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            byte[] response = "ok\n".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, response.length);
+            exchange.getResponseBody().write(response);
+        }
+    }
+
+    private void stats(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            ResultCache<SimulationConfig, SimulationResult> cache = ResultCache.simulations();
+            byte[] response = String.format("{\"entries\":%d,\"hits\":%d,\"misses\":%d,\"evictions\":%d,\"invalidations\":%d}%n",
+                    cache.size(), cache.getHitCount(), cache.getMissCount(), cache.getEvictionCount(), cache.getInvalidationCount())
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, response.length);
+            exchange.getResponseBody().write(response);
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        StringBuilder json = new StringBuilder("{\"error\":");
+        SimpleJson.appendString(json, message);
+        byte[] response = json.append("}\n").toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, response.length);
+        exchange.getResponseBody().write(response);
+    }
+
+    // Reads the whole body, or returns null when it is over MAX_BODY
+    private static String readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            body.write(buffer, 0, read);
+            if (body.size() > MAX_BODY) {
+                return null;
+            }
+        }
+        return body.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,184 @@
+package symposium;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.YearMonth;
+
+// The full state of a simulator between two months, as an immutable value.
+//
+// fork() builds a new simulator that continues from here exactly like the original would have, so
+// many strategies can branch off one simulated prefix instead of each replaying it. The with methods
+// change what happens from the snapshot on, for example a different allocation path or withdrawal
+// after a retirement date. writeTo and readFrom store a snapshot in 106 bytes, to checkpoint a long
+// run and resume it in another process.
+//
+// Stock data indexes are not stored, only dates, so a snapshot also resumes on data that starts at
+// another month. The months already simulated are fingerprinted and restoring on data where they
+// differ fails instead of mixing two data sets in one run. Listener and history are not part of the
+// state, a fork starts without them.
+public class SimulatorSnapshot {
+
+    private static final int MAGIC = 0x534D5353; // "SMSS"
+    private static final int FORMAT = 1;
+
+    final boolean withdrawing;
+    final boolean historicalRates;
+    final boolean bankrupt;
+    final double stockBalance;
+    final double fixedBalance;
+    final double startAlloc;
+    final double endAlloc;
+    final double allocation;
+    final double annualIncrease;
+    final double fixedYield;
+    final double dividend;
+    final double flow;       // Monthly contribution, or the fraction withdrawn each month
+    final double flowTotal;  // Total contributed or withdrawn so far
+    final YearMonth startDate;
+    final YearMonth endDate;
+    final int currentMonth;
+    final long dataVersion;  // StockData.rangeVersion of the months already simulated
+
+    SimulatorSnapshot(boolean withdrawing, boolean historicalRates, boolean bankrupt,
+                      double stockBalance, double fixedBalance, double startAlloc, double endAlloc, double allocation,
+                      double annualIncrease, double fixedYield, double dividend, double flow, double flowTotal,
+                      YearMonth startDate, YearMonth endDate, int currentMonth, long dataVersion) {
+        this.withdrawing = withdrawing;
+        this.historicalRates = historicalRates;
+        this.bankrupt = bankrupt;
+        this.stockBalance = stockBalance;
+        this.fixedBalance = fixedBalance;
+        this.startAlloc = startAlloc;
+        this.endAlloc = endAlloc;
+        this.allocation = allocation;
+        this.annualIncrease = annualIncrease;
+        this.fixedYield = fixedYield;
+        this.dividend = dividend;
+        this.flow = flow;
+        this.flowTotal = flowTotal;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.currentMonth = currentMonth;
+        this.dataVersion = dataVersion;
+    }
+
+    // A new simulator of the same kind in this state, ready for continueSimulation()
+    public ParentSimulator fork() {
+        ParentSimulator sim = withdrawing ? new WithdrawSimulator() : new InvestSimulator();
+        sim.restore(this);
+        return sim;
+    }
+
+    // Same run with a different allocation path. The current allocation stays until the next January,
+    // which rebalances straight to the new path's position then, still measured from the start date.
+    public SimulatorSnapshot withAllocation(double startAlloc, double endAlloc) {
+        return new SimulatorSnapshot(withdrawing, historicalRates, bankrupt, stockBalance, fixedBalance, startAlloc, endAlloc, allocation,
+                annualIncrease, fixedYield, dividend, flow, flowTotal, startDate, endDate, currentMonth, dataVersion);
+    }
+
+    public SimulatorSnapshot withMonthlyContribution(double contribution) {
+        if (withdrawing) {
+            throw new IllegalStateException("Withdrawal simulators have no contribution.");
+        }
+        return withFlow(contribution);
+    }
+
+    // Annual withdrawal as a fraction, like the WithdrawSimulator constructor takes it
+    public SimulatorSnapshot withAnnualWithdrawalPercentage(double annualWithdrawalPercentage) {
+        if (!withdrawing) {
+            throw new IllegalStateException("Investment simulators have no withdrawal.");
+        }
+        return withFlow(annualWithdrawalPercentage / 12);
+    }
+
+    private SimulatorSnapshot withFlow(double flow) {
+        return new SimulatorSnapshot(withdrawing, historicalRates, bankrupt, stockBalance, fixedBalance, startAlloc, endAlloc, allocation,
+                annualIncrease, fixedYield, dividend, flow, flowTotal, startDate, endDate, currentMonth, dataVersion);
+    }
+
+    public SimulatorSnapshot withFixedYield(double fixedYield) {
+        return new SimulatorSnapshot(withdrawing, historicalRates, bankrupt, stockBalance, fixedBalance, startAlloc, endAlloc, allocation,
+                annualIncrease, fixedYield, dividend, flow, flowTotal, startDate, endDate, currentMonth, dataVersion);
+    }
+
+    public SimulatorSnapshot withAnnualIncrease(double annualIncrease) {
+        return new SimulatorSnapshot(withdrawing, historicalRates, bankrupt, stockBalance, fixedBalance, startAlloc, endAlloc, allocation,
+                annualIncrease, fixedYield, dividend, flow, flowTotal, startDate, endDate, currentMonth, dataVersion);
+    }
+
+    // Runs on to a different end date, which also stretches or shrinks the glide path
+    public SimulatorSnapshot withEndDate(YearMonth endDate) {
+        if (endDate.isBefore(getCurrentDate())) {
+            throw new IllegalArgumentException("End date is before the snapshot's month.");
+        }
+        return new SimulatorSnapshot(withdrawing, historicalRates, bankrupt, stockBalance, fixedBalance, startAlloc, endAlloc, allocation,
+                annualIncrease, fixedYield, dividend, flow, flowTotal, startDate, endDate, currentMonth, dataVersion);
+    }
+
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(FORMAT);
+        out.writeByte((withdrawing ? 1 : 0) | (historicalRates ? 2 : 0) | (bankrupt ? 4 : 0));
+        out.writeDouble(stockBalance);
+        out.writeDouble(fixedBalance);
+        out.writeDouble(startAlloc);
+        out.writeDouble(endAlloc);
+        out.writeDouble(allocation);
+        out.writeDouble(annualIncrease);
+        out.writeDouble(fixedYield);
+        out.writeDouble(dividend);
+        out.writeDouble(flow);
+        out.writeDouble(flowTotal);
+        out.writeInt(startDate.getYear() * 12 + startDate.getMonthValue() - 1);
+        out.writeInt(endDate.getYear() * 12 + endDate.getMonthValue() - 1);
+        out.writeInt(currentMonth);
+        out.writeLong(dataVersion);
+    }
+
+    public static SimulatorSnapshot readFrom(DataInput in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a simulator snapshot.");
+        }
+        int format = in.readByte();
+        if (format != FORMAT) {
+            throw new IOException("Unsupported snapshot format " + format + ".");
+        }
+        int flags = in.readByte();
+        double stockBalance = in.readDouble();
+        double fixedBalance = in.readDouble();
+        double startAlloc = in.readDouble();
+        double endAlloc = in.readDouble();
+        double allocation = in.readDouble();
+        double annualIncrease = in.readDouble();
+        double fixedYield = in.readDouble();
+        double dividend = in.readDouble();
+        double flow = in.readDouble();
+        double flowTotal = in.readDouble();
+        int start = in.readInt();
+        int end = in.readInt();
+        int currentMonth = in.readInt();
+        long dataVersion = in.readLong();
+        return new SimulatorSnapshot((flags & 1) != 0, (flags & 2) != 0, (flags & 4) != 0,
+                stockBalance, fixedBalance, startAlloc, endAlloc, allocation, annualIncrease, fixedYield, dividend, flow, flowTotal,
+                YearMonth.of(Math.floorDiv(start, 12), Math.floorMod(start, 12) + 1),
+                YearMonth.of(Math.floorDiv(end, 12), Math.floorMod(end, 12) + 1), currentMonth, dataVersion);
+    }
+
+    public boolean isWithdrawing() {
+        return withdrawing;
+    }
+
+    // The next month the simulator will run
+    public YearMonth getCurrentDate() {
+        return startDate.plusMonths(currentMonth);
+    }
+
+    public double getBalance() {
+        return stockBalance + fixedBalance;
+    }
+
+    public double getTotalFlow() {
+        return flowTotal;
+    }
+}
@@ -1,516 +1,329 @@
 package symposium;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.file.Paths;
 import java.time.YearMonth;
-import java.time.format.DateTimeFormatter;
-import java.util.HashMap;
-import java.util.Map;
 
 public class StockData {
 
+    private static final long HASH_BASE = 0x100000001B3L;
 
-    // MONTHLY STOCK MARKET DATAPOINTS FROM 01/1985 TO 12/2024
-    private static final Map<String, Double> stockPrices = new HashMap<String, Double>();
-
-    static {
-        stockPrices.put("01/1985", 179.63);
-        stockPrices.put("02/1985", 181.18);
-        stockPrices.put("03/1985", 180.66);
-        stockPrices.put("04/1985", 179.83);
-        stockPrices.put("05/1985", 189.55);
-        stockPrices.put("06/1985", 191.85);
-        stockPrices.put("07/1985", 190.92);
-        stockPrices.put("08/1985", 188.63);
-        stockPrices.put("09/1985", 182.08);
-        stockPrices.put("10/1985", 189.82);
-        stockPrices.put("11/1985", 202.17);
-        stockPrices.put("12/1985", 211.28);
-        stockPrices.put("01/1986", 211.78);
-        stockPrices.put("02/1986", 226.92);
-        stockPrices.put("03/1986", 238.90);
-        stockPrices.put("04/1986", 235.52);
-        stockPrices.put("05/1986", 247.35);
-        stockPrices.put("06/1986", 250.84);
-        stockPrices.put("07/1986", 236.12);
-        stockPrices.put("08/1986", 252.93);
-        stockPrices.put("09/1986", 231.32);
-        stockPrices.put("10/1986", 243.98);
-        stockPrices.put("11/1986", 249.22);
-        stockPrices.put("12/1986", 242.17);
-        stockPrices.put("01/1987", 274.08);
-        stockPrices.put("02/1987", 284.20);
-        stockPrices.put("03/1987", 291.70);
-        stockPrices.put("04/1987", 288.36);
-        stockPrices.put("05/1987", 290.10);
-        stockPrices.put("06/1987", 304.00);
-        stockPrices.put("07/1987", 318.66);
-        stockPrices.put("08/1987", 329.80);
-        stockPrices.put("09/1987", 321.83);
-        stockPrices.put("10/1987", 251.79);
-        stockPrices.put("11/1987", 230.30);
-        stockPrices.put("12/1987", 247.08);
-        stockPrices.put("01/1988", 257.07);
-        stockPrices.put("02/1988", 267.82);
-        stockPrices.put("03/1988", 258.89);
-        stockPrices.put("04/1988", 261.33);
-        stockPrices.put("05/1988", 262.16);
-        stockPrices.put("06/1988", 273.50);
-        stockPrices.put("07/1988", 272.02);
-        stockPrices.put("08/1988", 261.52);
-        stockPrices.put("09/1988", 271.91);
-        stockPrices.put("10/1988", 278.97);
-        stockPrices.put("11/1988", 273.70);
-        stockPrices.put("12/1988", 277.72);
-        stockPrices.put("01/1989", 297.47);
-        stockPrices.put("02/1989", 288.86);
-        stockPrices.put("03/1989", 294.87);
-        stockPrices.put("04/1989", 309.64);
-        stockPrices.put("05/1989", 320.52);
-        stockPrices.put("06/1989", 317.98);
-        stockPrices.put("07/1989", 346.08);
-        stockPrices.put("08/1989", 351.45);
-        stockPrices.put("09/1989", 349.15);
-        stockPrices.put("10/1989", 340.36);
-        stockPrices.put("11/1989", 345.99);
-        stockPrices.put("12/1989", 353.40);
-        stockPrices.put("01/1990", 329.08);
-        stockPrices.put("02/1990", 331.89);
-        stockPrices.put("03/1990", 339.94);
-        stockPrices.put("04/1990", 330.80);
-        stockPrices.put("05/1990", 361.23);
-        stockPrices.put("06/1990", 358.02);
-        stockPrices.put("07/1990", 356.15);
-        stockPrices.put("08/1990", 322.56);
-        stockPrices.put("09/1990", 306.05);
-        stockPrices.put("10/1990", 304.00);
-        stockPrices.put("11/1990", 322.22);
-        stockPrices.put("12/1990", 330.22);
-        stockPrices.put("01/1991", 343.93);
-        stockPrices.put("02/1991", 367.07);
-        stockPrices.put("03/1991", 375.22);
-        stockPrices.put("04/1991", 375.34);
-        stockPrices.put("05/1991", 389.83);
-        stockPrices.put("06/1991", 371.16);
-        stockPrices.put("07/1991", 387.81);
-        stockPrices.put("08/1991", 395.43);
-        stockPrices.put("09/1991", 387.86);
-        stockPrices.put("10/1991", 392.45);
-        stockPrices.put("11/1991", 375.22);
-        stockPrices.put("12/1991", 417.09);
-        stockPrices.put("01/1992", 408.78);
-        stockPrices.put("02/1992", 412.70);
-        stockPrices.put("03/1992", 403.69);
-        stockPrices.put("04/1992", 414.95);
-        stockPrices.put("05/1992", 415.35);
-        stockPrices.put("06/1992", 408.14);
-        stockPrices.put("07/1992", 424.21);
-        stockPrices.put("08/1992", 414.03);
-        stockPrices.put("09/1992", 417.80);
-        stockPrices.put("10/1992", 418.68);
-        stockPrices.put("11/1992", 431.35);
-        stockPrices.put("12/1992", 435.71);
-        stockPrices.put("01/1993", 438.78);
-        stockPrices.put("02/1993", 442.38);
-        stockPrices.put("03/1993", 451.67);
-        stockPrices.put("04/1993", 440.19);
-        stockPrices.put("05/1993", 450.19);
-        stockPrices.put("06/1993", 450.53);
-        stockPrices.put("07/1993", 448.13);
-        stockPrices.put("08/1993", 463.56);
-        stockPrices.put("09/1993", 458.93);
-        stockPrices.put("10/1993", 467.83);
-        stockPrices.put("11/1993", 461.79);
-        stockPrices.put("12/1993", 466.45);
-        stockPrices.put("01/1994", 481.61);
-        stockPrices.put("02/1994", 467.14);
-        stockPrices.put("03/1994", 445.77);
-        stockPrices.put("04/1994", 450.91);
-        stockPrices.put("05/1994", 456.50);
-        stockPrices.put("06/1994", 444.27);
-        stockPrices.put("07/1994", 458.26);
-        stockPrices.put("08/1994", 475.49);
-        stockPrices.put("09/1994", 462.71);
-        stockPrices.put("10/1994", 472.35);
-        stockPrices.put("11/1994", 453.69);
-        stockPrices.put("12/1994", 459.27);
-        stockPrices.put("01/1995", 470.42);
-        stockPrices.put("02/1995", 487.39);
-        stockPrices.put("03/1995", 500.71);
-        stockPrices.put("04/1995", 514.71);
-        stockPrices.put("05/1995", 533.40);
-        stockPrices.put("06/1995", 544.75);
-        stockPrices.put("07/1995", 562.06);
-        stockPrices.put("08/1995", 561.88);
-        stockPrices.put("09/1995", 584.41);
-        stockPrices.put("10/1995", 581.50);
-        stockPrices.put("11/1995", 605.37);
-        stockPrices.put("12/1995", 615.93);
-        stockPrices.put("01/1996", 636.02);
-        stockPrices.put("02/1996", 640.43);
-        stockPrices.put("03/1996", 645.50);
-        stockPrices.put("04/1996", 654.17);
-        stockPrices.put("05/1996", 669.12);
-        stockPrices.put("06/1996", 670.63);
-        stockPrices.put("07/1996", 639.95);
-        stockPrices.put("08/1996", 651.99);
-        stockPrices.put("09/1996", 687.33);
-        stockPrices.put("10/1996", 705.27);
-        stockPrices.put("11/1996", 757.02);
-        stockPrices.put("12/1996", 740.74);
-        stockPrices.put("01/1997", 786.16);
-        stockPrices.put("02/1997", 790.82);
-        stockPrices.put("03/1997", 757.12);
-        stockPrices.put("04/1997", 801.34);
-        stockPrices.put("05/1997", 848.28);
-        stockPrices.put("06/1997", 885.14);
-        stockPrices.put("07/1997", 954.31);
-        stockPrices.put("08/1997", 899.47);
-        stockPrices.put("09/1997", 947.28);
-        stockPrices.put("10/1997", 914.62);
-        stockPrices.put("11/1997", 955.40);
-        stockPrices.put("12/1997", 970.43);
-        stockPrices.put("01/1998", 980.28);
-        stockPrices.put("02/1998", 1049.34);
-        stockPrices.put("03/1998", 1101.75);
-        stockPrices.put("04/1998", 1111.75);
-        stockPrices.put("05/1998", 1090.82);
-        stockPrices.put("06/1998", 1133.84);
-        stockPrices.put("07/1998", 1120.67);
-        stockPrices.put("08/1998", 957.28);
-        stockPrices.put("09/1998", 1017.01);
-        stockPrices.put("10/1998", 1198.67);
-        stockPrices.put("11/1998", 1163.63);
-        stockPrices.put("12/1998", 1229.23);
-        stockPrices.put("01/1999", 1279.64);
-        stockPrices.put("02/1999", 1238.33);
-        stockPrices.put("03/1999", 1286.37);
-        stockPrices.put("04/1999", 1335.18);
-        stockPrices.put("05/1999", 1301.84);
-        stockPrices.put("06/1999", 1372.71);
-        stockPrices.put("07/1999", 1328.72);
-        stockPrices.put("08/1999", 1320.41);
-        stockPrices.put("09/1999", 1282.71);
-        stockPrices.put("10/1999", 1362.93);
-        stockPrices.put("11/1999", 1388.91);
-        stockPrices.put("12/1999", 1469.25);
-        stockPrices.put("01/2000", 1394.46);
-        stockPrices.put("02/2000", 1366.42);
-        stockPrices.put("03/2000", 1498.58);
-        stockPrices.put("04/2000", 1452.43);
-        stockPrices.put("05/2000", 1420.60);
-        stockPrices.put("06/2000", 1454.60);
-        stockPrices.put("07/2000", 1430.83);
-        stockPrices.put("08/2000", 1517.68);
-        stockPrices.put("09/2000", 1436.51);
-        stockPrices.put("10/2000", 1429.40);
-        stockPrices.put("11/2000", 1314.95);
-        stockPrices.put("12/2000", 1320.28);
-        stockPrices.put("01/2001", 1366.01);
-        stockPrices.put("02/2001", 1239.94);
-        stockPrices.put("03/2001", 1160.33);
-        stockPrices.put("04/2001", 1249.46);
-        stockPrices.put("05/2001", 1255.82);
-        stockPrices.put("06/2001", 1224.38);
-        stockPrices.put("07/2001", 1211.23);
-        stockPrices.put("08/2001", 1133.58);
-        stockPrices.put("09/2001", 1040.94);
-        stockPrices.put("10/2001", 1059.78);
-        stockPrices.put("11/2001", 1139.45);
-        stockPrices.put("12/2001", 1148.08);
-        stockPrices.put("01/2002", 1130.20);
-        stockPrices.put("02/2002", 1106.73);
-        stockPrices.put("03/2002", 1147.39);
-        stockPrices.put("04/2002", 1076.92);
-        stockPrices.put("05/2002", 1067.14);
-        stockPrices.put("06/2002", 989.82);
-        stockPrices.put("07/2002", 911.62);
-        stockPrices.put("08/2002", 916.07);
-        stockPrices.put("09/2002", 815.28);
-        stockPrices.put("10/2002", 885.76);
-        stockPrices.put("11/2002", 936.31);
-        stockPrices.put("12/2002", 879.82);
-        stockPrices.put("01/2003", 855.70);
-        stockPrices.put("02/2003", 841.15);
-        stockPrices.put("03/2003", 848.18);
-        stockPrices.put("04/2003", 916.92);
-        stockPrices.put("05/2003", 963.59);
-        stockPrices.put("06/2003", 974.50);
-        stockPrices.put("07/2003", 990.31);
-        stockPrices.put("08/2003", 1008.01);
-        stockPrices.put("09/2003", 995.97);
-        stockPrices.put("10/2003", 1050.71);
-        stockPrices.put("11/2003", 1058.20);
-        stockPrices.put("12/2003", 1111.92);
-        stockPrices.put("01/2004", 1131.13);
-        stockPrices.put("02/2004", 1144.94);
-        stockPrices.put("03/2004", 1126.21);
-        stockPrices.put("04/2004", 1107.30);
-        stockPrices.put("05/2004", 1120.68);
-        stockPrices.put("06/2004", 1140.84);
-        stockPrices.put("07/2004", 1101.72);
-        stockPrices.put("08/2004", 1104.24);
-        stockPrices.put("09/2004", 1114.58);
-        stockPrices.put("10/2004", 1130.20);
-        stockPrices.put("11/2004", 1173.82);
-        stockPrices.put("12/2004", 1211.92);
-        stockPrices.put("01/2005", 1181.27);
-        stockPrices.put("02/2005", 1203.60);
-        stockPrices.put("03/2005", 1180.59);
-        stockPrices.put("04/2005", 1156.85);
-        stockPrices.put("05/2005", 1191.50);
-        stockPrices.put("06/2005", 1191.33);
-        stockPrices.put("07/2005", 1234.18);
-        stockPrices.put("08/2005", 1220.33);
-        stockPrices.put("09/2005", 1228.81);
-        stockPrices.put("10/2005", 1207.01);
-        stockPrices.put("11/2005", 1249.48);
-        stockPrices.put("12/2005", 1248.29);
-        stockPrices.put("01/2006", 1280.08);
-        stockPrices.put("02/2006", 1280.66);
-        stockPrices.put("03/2006", 1294.87);
-        stockPrices.put("04/2006", 1310.61);
-        stockPrices.put("05/2006", 1270.09);
-        stockPrices.put("06/2006", 1270.20);
-        stockPrices.put("07/2006", 1276.66);
-        stockPrices.put("08/2006", 1303.82);
-        stockPrices.put("09/2006", 1335.85);
-        stockPrices.put("10/2006", 1377.94);
-        stockPrices.put("11/2006", 1400.63);
-        stockPrices.put("12/2006", 1418.30);
-        stockPrices.put("01/2007", 1438.24);
-        stockPrices.put("02/2007", 1406.82);
-        stockPrices.put("03/2007", 1420.86);
-        stockPrices.put("04/2007", 1482.37);
-        stockPrices.put("05/2007", 1530.62);
-        stockPrices.put("06/2007", 1503.35);
-        stockPrices.put("07/2007", 1455.27);
-        stockPrices.put("08/2007", 1473.99);
-        stockPrices.put("09/2007", 1526.75);
-        stockPrices.put("10/2007", 1549.38);
-        stockPrices.put("11/2007", 1481.14);
-        stockPrices.put("12/2007", 1468.36);
-        stockPrices.put("01/2008", 1378.55);
-        stockPrices.put("02/2008", 1330.63);
-        stockPrices.put("03/2008", 1322.70);
-        stockPrices.put("04/2008", 1385.59);
-        stockPrices.put("05/2008", 1400.38);
-        stockPrices.put("06/2008", 1280.00);
-        stockPrices.put("07/2008", 1267.38);
-        stockPrices.put("08/2008", 1282.83);
-        stockPrices.put("09/2008", 1166.36);
-        stockPrices.put("10/2008", 968.75);
-        stockPrices.put("11/2008", 896.24);
-        stockPrices.put("12/2008", 903.25);
-        stockPrices.put("01/2009", 825.88);
-        stockPrices.put("02/2009", 735.09);
-        stockPrices.put("03/2009", 797.87);
-        stockPrices.put("04/2009", 872.81);
-        stockPrices.put("05/2009", 919.14);
-        stockPrices.put("06/2009", 919.32);
-        stockPrices.put("07/2009", 987.48);
-        stockPrices.put("08/2009", 1020.62);
-        stockPrices.put("09/2009", 1057.08);
-        stockPrices.put("10/2009", 1036.19);
-        stockPrices.put("11/2009", 1095.63);
-        stockPrices.put("12/2009", 1115.10);
-        stockPrices.put("01/2010", 1073.87);
-        stockPrices.put("02/2010", 1104.49);
-        stockPrices.put("03/2010", 1169.43);
-        stockPrices.put("04/2010", 1186.69);
-        stockPrices.put("05/2010", 1089.41);
-        stockPrices.put("06/2010", 1030.71);
-        stockPrices.put("07/2010", 1101.60);
-        stockPrices.put("08/2010", 1049.33);
-        stockPrices.put("09/2010", 1141.20);
-        stockPrices.put("10/2010", 1183.26);
-        stockPrices.put("11/2010", 1180.55);
-        stockPrices.put("12/2010", 1257.64);
-        stockPrices.put("01/2011", 1286.12);
-        stockPrices.put("02/2011", 1327.22);
-        stockPrices.put("03/2011", 1325.83);
-        stockPrices.put("04/2011", 1363.61);
-        stockPrices.put("05/2011", 1345.20);
-        stockPrices.put("06/2011", 1320.64);
-        stockPrices.put("07/2011", 1292.28);
-        stockPrices.put("08/2011", 1218.89);
-        stockPrices.put("09/2011", 1131.42);
-        stockPrices.put("10/2011", 1253.30);
-        stockPrices.put("11/2011", 1246.96);
-        stockPrices.put("12/2011", 1257.60);
-        stockPrices.put("01/2012", 1312.41);
-        stockPrices.put("02/2012", 1365.68);
-        stockPrices.put("03/2012", 1408.47);
-        stockPrices.put("04/2012", 1397.91);
-        stockPrices.put("05/2012", 1310.33);
-        stockPrices.put("06/2012", 1362.16);
-        stockPrices.put("07/2012", 1379.32);
-        stockPrices.put("08/2012", 1406.58);
-        stockPrices.put("09/2012", 1440.67);
-        stockPrices.put("10/2012", 1412.16);
-        stockPrices.put("11/2012", 1416.18);
-        stockPrices.put("12/2012", 1426.19);
-        stockPrices.put("01/2013", 1498.11);
-        stockPrices.put("02/2013", 1514.68);
-        stockPrices.put("03/2013", 1569.19);
-        stockPrices.put("04/2013", 1597.57);
-        stockPrices.put("05/2013", 1630.74);
-        stockPrices.put("06/2013", 1606.28);
-        stockPrices.put("07/2013", 1685.73);
-        stockPrices.put("08/2013", 1632.97);
-        stockPrices.put("09/2013", 1681.55);
-        stockPrices.put("10/2013", 1756.54);
-        stockPrices.put("11/2013", 1805.81);
-        stockPrices.put("12/2013", 1848.36);
-        stockPrices.put("01/2014", 1782.59);
-        stockPrices.put("02/2014", 1859.45);
-        stockPrices.put("03/2014", 1872.34);
-        stockPrices.put("04/2014", 1883.95);
-        stockPrices.put("05/2014", 1923.57);
-        stockPrices.put("06/2014", 1960.23);
-        stockPrices.put("07/2014", 1930.67);
-        stockPrices.put("08/2014", 2003.37);
-        stockPrices.put("09/2014", 1972.29);
-        stockPrices.put("10/2014", 2018.05);
-        stockPrices.put("11/2014", 2067.56);
-        stockPrices.put("12/2014", 2058.90);
-        stockPrices.put("01/2015", 1994.99);
-        stockPrices.put("02/2015", 2104.50);
-        stockPrices.put("03/2015", 2067.89);
-        stockPrices.put("04/2015", 2085.51);
-        stockPrices.put("05/2015", 2107.39);
-        stockPrices.put("06/2015", 2063.11);
-        stockPrices.put("07/2015", 2103.84);
-        stockPrices.put("08/2015", 1972.18);
-        stockPrices.put("09/2015", 1920.03);
-        stockPrices.put("10/2015", 2079.36);
-        stockPrices.put("11/2015", 2080.41);
-        stockPrices.put("12/2015", 2043.94);
-        stockPrices.put("01/2016", 1940.24);
-        stockPrices.put("02/2016", 1932.23);
-        stockPrices.put("03/2016", 2059.74);
-        stockPrices.put("04/2016", 2065.30);
-        stockPrices.put("05/2016", 2096.95);
-        stockPrices.put("06/2016", 2098.86);
-        stockPrices.put("07/2016", 2173.60);
-        stockPrices.put("08/2016", 2170.95);
-        stockPrices.put("09/2016", 2168.27);
-        stockPrices.put("10/2016", 2126.15);
-        stockPrices.put("11/2016", 2198.81);
-        stockPrices.put("12/2016", 2238.83);
-        stockPrices.put("01/2017", 2278.87);
-        stockPrices.put("02/2017", 2363.64);
-        stockPrices.put("03/2017", 2362.72);
-        stockPrices.put("04/2017", 2384.20);
-        stockPrices.put("05/2017", 2411.80);
-        stockPrices.put("06/2017", 2423.41);
-        stockPrices.put("07/2017", 2470.30);
-        stockPrices.put("08/2017", 2471.65);
-        stockPrices.put("09/2017", 2519.36);
-        stockPrices.put("10/2017", 2575.26);
-        stockPrices.put("11/2017", 2647.58);
-        stockPrices.put("12/2017", 2673.61);
-        stockPrices.put("01/2018", 2823.81);
-        stockPrices.put("02/2018", 2713.83);
-        stockPrices.put("03/2018", 2640.87);
-        stockPrices.put("04/2018", 2648.05);
-        stockPrices.put("05/2018", 2705.27);
-        stockPrices.put("06/2018", 2718.37);
-        stockPrices.put("07/2018", 2816.29);
-        stockPrices.put("08/2018", 2901.52);
-        stockPrices.put("09/2018", 2913.98);
-        stockPrices.put("10/2018", 2711.74);
-        stockPrices.put("11/2018", 2760.17);
-        stockPrices.put("12/2018", 2506.85);
-        stockPrices.put("01/2019", 2704.10);
-        stockPrices.put("02/2019", 2784.49);
-        stockPrices.put("03/2019", 2834.40);
-        stockPrices.put("04/2019", 2945.83);
-        stockPrices.put("05/2019", 2752.06);
-        stockPrices.put("06/2019", 2941.76);
-        stockPrices.put("07/2019", 2980.38);
-        stockPrices.put("08/2019", 2926.46);
-        stockPrices.put("09/2019", 2976.74);
-        stockPrices.put("10/2019", 3037.56);
-        stockPrices.put("11/2019", 3140.98);
-        stockPrices.put("12/2019", 3230.78);
-        stockPrices.put("01/2020", 3225.52);
-        stockPrices.put("02/2020", 2954.22);
-        stockPrices.put("03/2020", 2584.59);
-        stockPrices.put("04/2020", 2912.43);
-        stockPrices.put("05/2020", 3044.31);
-        stockPrices.put("06/2020", 3100.29);
-        stockPrices.put("07/2020", 3271.12);
-        stockPrices.put("08/2020", 3500.31);
-        stockPrices.put("09/2020", 3363.00);
-        stockPrices.put("10/2020", 3269.96);
-        stockPrices.put("11/2020", 3621.63);
-        stockPrices.put("12/2020", 3756.07);
-        stockPrices.put("01/2021", 3714.24);
-        stockPrices.put("02/2021", 3811.15);
-        stockPrices.put("03/2021", 3972.89);
-        stockPrices.put("04/2021", 4181.17);
-        stockPrices.put("05/2021", 4204.11);
-        stockPrices.put("06/2021", 4297.50);
-        stockPrices.put("07/2021", 4395.26);
-        stockPrices.put("08/2021", 4522.68);
-        stockPrices.put("09/2021", 4307.54);
-        stockPrices.put("10/2021", 4605.38);
-        stockPrices.put("11/2021", 4567.00);
-        stockPrices.put("12/2021", 4766.18);
-        stockPrices.put("01/2022", 4515.55);
-        stockPrices.put("02/2022", 4373.94);
-        stockPrices.put("03/2022", 4530.41);
-        stockPrices.put("04/2022", 4131.93);
-        stockPrices.put("05/2022", 4132.15);
-        stockPrices.put("06/2022", 3785.38);
-        stockPrices.put("07/2022", 4130.29);
-        stockPrices.put("08/2022", 3955.00);
-        stockPrices.put("09/2022", 3585.62);
-        stockPrices.put("10/2022", 3871.98);
-        stockPrices.put("11/2022", 4080.11);
-        stockPrices.put("12/2022", 3839.50);
-        stockPrices.put("01/2023", 4076.60);
-        stockPrices.put("02/2023", 3970.15);
-        stockPrices.put("03/2023", 4109.31);
-        stockPrices.put("04/2023", 4169.48);
-        stockPrices.put("05/2023", 4079.83);
-        stockPrices.put("06/2023", 4450.38);
-        stockPrices.put("07/2023", 4588.96);
-        stockPrices.put("08/2023", 4507.66);
-        stockPrices.put("09/2023", 4288.05);
-        stockPrices.put("10/2023", 4193.80);
-        stockPrices.put("11/2023", 4567.80);
-        stockPrices.put("12/2023", 4769.83);
-        stockPrices.put("01/2024", 4845.65);
-        stockPrices.put("02/2024", 5096.27);
-        stockPrices.put("03/2024", 5254.35);
-        stockPrices.put("04/2024", 5035.69);
-        stockPrices.put("05/2024", 5277.51);
-        stockPrices.put("06/2024", 5460.48);
-        stockPrices.put("07/2024", 5522.30);
-        stockPrices.put("08/2024", 5648.40);
-        stockPrices.put("09/2024", 5762.48);
-        stockPrices.put("10/2024", 5705.45);
-        stockPrices.put("11/2024", 6032.38);
-        stockPrices.put("12/2024", 5881.63);
+    // Monthly stock market datapoints from 01/1985 to 12/2024, shipped next to the classes
+    static final String BUNDLED_DATA = "stock_prices.csv";
+
+    // Month-indexed table shared by every instance: the CSV or binary file named by
+    // -Dsymposium.stockData when it is set, otherwise the bundled datapoints. ExperimentWatcher
+    // replaces it when the file gets new months.
+    private static volatile StockData defaultData = loadDefault();
+
+    // Read-only columns, either wrapping heap arrays or viewing a memory-mapped binary file
+    private final YearMonth firstMonth;
+    private final int monthCount;
+    private final DoubleBuffer prices;
+    // monthlyReturns[i] is the percent change from month i - 1 to month i (index 0 has no previous month)
+    private final DoubleBuffer monthlyReturns;
+
+    // Optional series on the same month index, null when the loaded data does not have them
+    private final DoubleBuffer dividendYields;  // Annual dividend yield of the index, percent
+    private final DoubleBuffer bondYields;      // 10-year Treasury yield, percent
+    private final DoubleBuffer cpi;             // Consumer price index level
+
+    // rangeHashes[i] is a polynomial hash of months 0 .. i - 1, so any range of months hashes in O(1).
+    // Built on first use so that opening a mapped file does not read every month. The volatile write
+    // of rangeHashes publishes hashPowers and version with it.
+    private volatile long[] rangeHashes;
+    private long[] hashPowers;
+    // Fingerprint of the contents, equal tables have equal versions
+    private long version;
+
+    private StockData(YearMonth firstMonth, DoubleBuffer prices, DoubleBuffer monthlyReturns,
+                      DoubleBuffer dividendYields, DoubleBuffer bondYields, DoubleBuffer cpi) {
+        this.firstMonth = firstMonth;
+        this.monthCount = prices.limit();
+        this.prices = prices;
+        this.monthlyReturns = monthlyReturns;
+        this.dividendYields = dividendYields;
+        this.bondYields = bondYields;
+        this.cpi = cpi;
     }
 
-    // Returns updated stock price based on previous month difference
-    public double calculatePercentChange(YearMonth startDate, YearMonth previousMonth) {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MM/yyyy");
-        String startPriceKey = startDate.format(formatter);
-        String previousPriceKey = previousMonth.format(formatter);
+    private long[] rangeHashes() {
+        long[] hashes = rangeHashes;
+        if (hashes == null) {
+            synchronized (this) {
+                hashes = rangeHashes;
+                if (hashes == null) {
+                    hashes = new long[monthCount + 1];
+                    long[] powers = new long[monthCount + 1];
+                    powers[0] = 1;
+                    for (int i = 0; i < monthCount; i++) {
+                        hashes[i + 1] = hashes[i] * HASH_BASE + monthHash(i);
+                        powers[i + 1] = powers[i] * HASH_BASE;
+                    }
+                    hashPowers = powers;
+                    version = mix(mix(firstMonth.getYear() * 12L + firstMonth.getMonthValue(), monthCount), hashes[monthCount]);
+                    rangeHashes = hashes;
+                }
+            }
+        }
+        return hashes;
+    }
 
-        Double startPrice = stockPrices.get(startPriceKey);
-        Double previousPrice = stockPrices.get(previousPriceKey);
+    private static StockData loadDefault() {
+        String file = System.getProperty("symposium.stockData");
+        try {
+            if (file != null) {
+                return MarketDataLoader.load(Paths.get(file));
+            }
+            try (InputStream in = StockData.class.getResourceAsStream(BUNDLED_DATA)) {
+                if (in != null) {
+                    return MarketDataLoader.parseCsv(ByteBuffer.wrap(in.readAllBytes()), BUNDLED_DATA);
+                }
+            }
+            // Classes compiled without the build's resources, run from the repository root
+            return MarketDataLoader.load(Paths.get(BUNDLED_DATA));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load stock data from " + (file != null ? file : BUNDLED_DATA), e);
+        }
+    }
 
-        if (startPrice == null || previousPrice == null) {
-            throw new IllegalArgumentException("Stock data not available for the specified months.");
+    public static StockData getDefault() {
+        return defaultData;
+    }
+
+    // Simulators reset after this call run on the new data
+    static void setDefault(StockData stockData) {
+        defaultData = stockData;
+    }
+
+    // Builds the return table for consecutive monthly prices starting at firstMonth
+    static StockData fromPrices(YearMonth firstMonth, double[] prices) {
+        double[] returns = new double[prices.length];
+        for (int i = 1; i < prices.length; i++) {
+            returns[i] = ((prices[i] - prices[i - 1]) / prices[i - 1]) * 100;
         }
+        return new StockData(firstMonth, DoubleBuffer.wrap(prices).asReadOnlyBuffer(), DoubleBuffer.wrap(returns).asReadOnlyBuffer(),
+                null, null, null);
+    }
 
-        return ((startPrice - previousPrice) / previousPrice) * 100;
+    // Uses already computed price and return columns as they are, without copying them
+    static StockData fromColumns(YearMonth firstMonth, DoubleBuffer prices, DoubleBuffer monthlyReturns) {
+        if (prices.limit() != monthlyReturns.limit()) {
+            throw new IllegalArgumentException("Price and return columns have different lengths.");
+        }
+        return new StockData(firstMonth, prices.asReadOnlyBuffer(), monthlyReturns.asReadOnlyBuffer(), null, null, null);
+    }
+
+    // Same prices with the optional series attached, any of them may be null
+    StockData withSeries(DoubleBuffer dividendYields, DoubleBuffer bondYields, DoubleBuffer cpi) {
+        return new StockData(firstMonth, prices, monthlyReturns,
+                checkSeries(dividendYields), checkSeries(bondYields), checkSeries(cpi));
+    }
+
+    private DoubleBuffer checkSeries(DoubleBuffer series) {
+        if (series == null) {
+            return null;
+        }
+        if (series.limit() != monthCount) {
+            throw new IllegalArgumentException("Series has " + series.limit() + " months, prices have " + monthCount + ".");
+        }
+        return series.asReadOnlyBuffer();
     }
-}
 
+    // Changes whenever the prices, series or range change, so results computed on other data can be told apart
+    public long getVersion() {
+        rangeHashes();
+        return version;
+    }
 
+    // Fingerprint of the months a run from start to end reads: the price before start up to end, and
+    // how much of that range the data covers. It stays the same when months are added outside the range,
+    // so results of runs that end before new data keep their key.
+    public long rangeVersion(YearMonth start, YearMonth end) {
+        int from = indexOf(start) - 1;
+        int to = indexOf(end);
+        int first = Math.max(from, 0);
+        int last = Math.min(to, monthCount - 1);
+        long[] hashes = rangeHashes();
+        long hash = first > last ? 0 : hashes[last + 1] - hashes[first] * hashPowers[last - first + 1];
+        return mix(mix(hash, first - from), to - last);
+    }
 
+    // The returns follow from the prices, so only the prices and the optional series are hashed
+    private long monthHash(int index) {
+        long hash = mix(Double.doubleToLongBits(prices.get(index)), 0);
+        DoubleBuffer[] series = {dividendYields, bondYields, cpi};
+        for (DoubleBuffer column : series) {
+            hash = column == null ? mix(hash, 0) : mix(mix(hash, 1), Double.doubleToLongBits(column.get(index)));
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, long value) {
+        hash = (hash ^ value) * 0x9E3779B97F4A7C15L;
+        return hash ^ (hash >>> 29);
+    }
+
+    // Number of months since the first datapoint, may be outside the data range
+    public int indexOf(YearMonth month) {
+        return (month.getYear() - firstMonth.getYear()) * 12 + month.getMonthValue() - firstMonth.getMonthValue();
+    }
+
+    public YearMonth monthAt(int index) {
+        return firstMonth.plusMonths(index);
+    }
+
+    // Calendar month (1-12) of an index without building a YearMonth
+    public int calendarMonth(int index) {
+        return Math.floorMod(firstMonth.getMonthValue() - 1 + index, 12) + 1;
+    }
+
+    public YearMonth getFirstMonth() {
+        return firstMonth;
+    }
+
+    public YearMonth getLastMonth() {
+        return monthAt(monthCount - 1);
+    }
+
+    public int getMonthCount() {
+        return monthCount;
+    }
+
+    public double getPrice(int index) {
+        return prices.get(index);
+    }
+
+    // True when both the month and the month before it have datapoints
+    public boolean hasPercentChange(int index) {
+        return index > 0 && index < monthCount;
+    }
+
+    // Percent change from month index - 1 to month index, check hasPercentChange first
+    public double getPercentChange(int index) {
+        return monthlyReturns.get(index);
+    }
 
+    // Copy of the precomputed monthly percent changes, indexed like getPercentChange
+    public double[] getMonthlyReturns() {
+        double[] copy = new double[monthCount];
+        monthlyReturns.get(0, copy);
+        return copy;
+    }
+
+    // Copy of the monthly prices
+    public double[] getPrices() {
+        double[] copy = new double[monthCount];
+        prices.get(0, copy);
+        return copy;
+    }
+
+    public boolean hasDividendYields() {
+        return dividendYields != null;
+    }
+
+    // Annual dividend yield in percent for the month, check hasDividendYields first
+    public double getDividendYield(int index) {
+        return dividendYields.get(index);
+    }
+
+    public boolean hasBondYields() {
+        return bondYields != null;
+    }
+
+    // Annual 10-year Treasury yield in percent for the month, check hasBondYields first
+    public double getBondYield(int index) {
+        return bondYields.get(index);
+    }
+
+    public boolean hasCpi() {
+        return cpi != null;
+    }
+
+    // Consumer price index level for the month, check hasCpi first
+    public double getCpi(int index) {
+        return cpi.get(index);
+    }
+
+    // Copy of a series, or null when the data does not have it
+    public double[] getDividendYields() {
+        return copy(dividendYields);
+    }
+
+    public double[] getBondYields() {
+        return copy(bondYields);
+    }
+
+    public double[] getCpiLevels() {
+        return copy(cpi);
+    }
+
+    private double[] copy(DoubleBuffer series) {
+        if (series == null) {
+            return null;
+        }
+        double[] copy = new double[monthCount];
+        series.get(0, copy);
+        return copy;
+    }
+
+    // Converts an amount in dollars of month index into dollars of month baseIndex
+    public double realValue(double amount, int index, int baseIndex) {
+        if (cpi == null) {
+            throw new IllegalStateException("Stock data has no CPI series.");
+        }
+        return amount * cpi.get(baseIndex) / cpi.get(index);
+    }
+
+    // The price series is itself the running product of every monthly growth factor, so the
+    // compounded growth of any window is one division instead of replaying its months.
+    // Growth factor of the stock price from month index from to month index to
+    public double growthFactor(int from, int to) {
+        return prices.get(to) / prices.get(from);
+    }
+
+    // Compounded percent change from month index from to month index to
+    public double compoundedReturn(int from, int to) {
+        return (growthFactor(from, to) - 1) * 100;
+    }
+
+    // Continuously compounded (log) return from month index from to month index to
+    public double logReturn(int from, int to) {
+        return Math.log(prices.get(to)) - Math.log(prices.get(from));
+    }
+
+    // Yearly percent return that compounds to the same growth over the window
+    public double annualizedReturn(int from, int to) {
+        return (Math.exp(logReturn(from, to) * 12 / (to - from)) - 1) * 100;
+    }
+
+    // Number of March, June, September and December months between two indexes, both included
+    public int countQuarterMonths(int from, int to) {
+        if (to < from) {
+            return 0;
+        }
+        int offset = firstMonth.getMonthValue();  // month index 0 is calendar month offset
+        return Math.floorDiv(to + offset, 3) - Math.floorDiv(from + offset - 1, 3);
+    }
+
+    // Returns updated stock price based on previous month difference
+    public double calculatePercentChange(YearMonth startDate, YearMonth previousMonth) {
+        int startIndex = indexOf(startDate);
+        int previousIndex = indexOf(previousMonth);
+
+        if (startIndex < 0 || startIndex >= monthCount || previousIndex < 0 || previousIndex >= monthCount) {
+            throw new IllegalArgumentException("Stock data not available for the specified months.");
+        }
+
+        if (previousIndex == startIndex - 1) {
+            return monthlyReturns.get(startIndex);
+        }
+        double startPrice = prices.get(startIndex);
+        double previousPrice = prices.get(previousIndex);
+        return ((startPrice - previousPrice) / previousPrice) * 100;
+    }
+}
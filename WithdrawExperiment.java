@@ -4,6 +4,8 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.time.YearMonth;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
 
 public class WithdrawExperiment {
 
@@ -21,280 +23,86 @@ public class WithdrawExperiment {
     private static final double[] INCREASES = {0, 2, 4, 6, 8, 10};
     private static final int RUNS = 10;
     private static final int YEAR_SPAN = 30;
+    private static final YearMonth FIRST_START = YearMonth.of(1985, 5);
+    static final String HEADER = "Variable\tFinal Balance\tTotal Withdraw\tAverage Monthly Withdrawal" + ResultSummary.COLUMN_HEADERS + "\n";
 
     public static void main(String[] args) {
-        try (FileWriter writer = new FileWriter("withdraw_results.txt")) {
+        // With -Dsymposium.resultStore=<directory> runs done before on the same data are read back
+        try (ExperimentExecutor executor = new ExperimentExecutor(ExperimentExecutor.parallelismFromArgs(args));
+             ResultStore store = ResultStore.openDefault();
+             FileWriter writer = new FileWriter("withdraw_results.txt")) {
             // Write the headers for each section
-            writer.write("Variable\tFinal Balance\tTotal Withdraw\tAverage Monthly Withdrawal\n");
+            writer.write(HEADER);
 
-            // Allocation Experiment
-            runAllocationExperiment(writer);
-
-            // Time Experiment
-            runTimeExperiment(writer);
-
-            // Withdrawal Experiment
-            runWithdrawalExperiment(writer);
-
-            // Increase Experiment
-            runIncreaseExperiment(writer);
-
-            // Initial Balance Experiment
-            runInitialBalanceExperiment(writer);
-
-            // Yield Experiment
-            runYieldExperiment(writer);
-
-            // Glide Experiment
-            runGlideExperiment(writer);
-
-            // Special Time Ranges Experiment
-            runSpecialExperiment(writer);
+            writer.write(runAllExperiments(executor, store));
 
             writer.close();
         } catch (IOException e) {
             e.printStackTrace();
         }
+    }
 
+    // Runs that several sections share, like the baseline, are only simulated once
+    public static String runAllExperiments(ExperimentExecutor executor) {
+        return runAllExperiments(executor, null);
     }
 
-    private static void runAllocationExperiment(FileWriter writer) throws IOException {
-        writer.write("\nTesting Allocation:\n");
-        for (double stockPercent : ALLOCATION_PERCENTS) {
-            double finalBalance = 0;
-            double totalContribution = 0;
-            double avgMonthlyContribution = 0;
-            for (int i = 0; i < RUNS; i++) {
-                // Run simulator for iteration
-                WithdrawSimulator sim = new WithdrawSimulator(INITIAL_BALANCE, MONTHLY_WITHDRAW, stockPercent / 100, stockPercent / 100, FIXED_YIELD, ANNUAL_INCREASE, YearMonth.of(1985 + i, 5), YearMonth.of(2015 + i, 5));
-                sim.runSimulation();
+    public static String runAllExperiments(ExperimentExecutor executor, ResultStore store) {
+        return spec().run(executor, store);
+    }
 
-                // Tally up sums
-                finalBalance += sim.getFinalAmount();
-                totalContribution += sim.getTotalWithdrawal();
-            }
+    public static ExperimentSpec spec() {
+        SimulationConfig base = SimulationConfig.withdraw(INITIAL_BALANCE, MONTHLY_WITHDRAW, STOCK_ALLOCATION, STOCK_ALLOCATION, FIXED_YIELD, ANNUAL_INCREASE,
+                FIRST_START, FIRST_START.plusYears(YEAR_SPAN));
 
-            // Averaging values
-            finalBalance /= RUNS;
-            totalContribution /= RUNS;
-            avgMonthlyContribution = totalContribution / (12 * YEAR_SPAN); // (MONTH * YEAR SPAN)
+        // Unless a section says otherwise every row is averaged over RUNS windows of YEAR_SPAN years, one starting every May from 1985
+        ExperimentSpec.Builder spec = ExperimentSpec.builder(base)
+                .windows(ExperimentSpec.rollingWindows(FIRST_START, RUNS, YEAR_SPAN), 12 * YEAR_SPAN);
 
-            // Write the variable along with results
-            writer.write(String.format("%.2f\t%.2f\t%.2f\t%.2f%n", stockPercent, finalBalance, totalContribution, avgMonthlyContribution));
-        }
-    }
+        spec.section("Testing Allocation:")
+                .sweep(ALLOCATION_PERCENTS, (config, stockPercent) -> config.withAllocation(stockPercent / 100, stockPercent / 100));
 
-    private static void runTimeExperiment(FileWriter writer) throws IOException {
-        writer.write("\nTesting Time:\n");
+        // Every May start from 1985 whose window ends within the data, and 40 years as the single run
+        // from 05/1985 to the last month of data (12/2024 for the bundled data)
+        YearMonth lastMonth = StockData.getDefault().getLastMonth();
+        spec.section("Testing Time:");
         for (int years : YEARS) {
-            double finalBalance = 0;
-            double totalContribution = 0;
-            double avgMonthlyContribution = 0;
-            int validRuns = 0;
-
             if (years < 40) {
-                for (int startYear = 1985; startYear + years <= 2024; startYear++) {
-                    // Run simulator for iteration
-                    WithdrawSimulator sim = new WithdrawSimulator(INITIAL_BALANCE, MONTHLY_WITHDRAW, STOCK_ALLOCATION, STOCK_ALLOCATION, FIXED_YIELD, ANNUAL_INCREASE, YearMonth.of(startYear, 5), YearMonth.of(startYear + years, 5));
-                    sim.runSimulation();
-
-                    // Tally up sums
-                    finalBalance += sim.getFinalAmount();
-                    totalContribution += sim.getTotalWithdrawal();
-                    validRuns++;
-                }
-
-                // Averaging values
-                finalBalance /= validRuns;
-                totalContribution /= validRuns;
-                avgMonthlyContribution = totalContribution / (12 * years); // (MONTH * YEAR SPAN)
-
+                int startYears = ExperimentSpec.windowsEndingBy(FIRST_START, years, lastMonth);
+                spec.row(Integer.toString(years), base, ExperimentSpec.rollingWindows(FIRST_START, startYears, years), 12 * years);
             } else {
-                // Define simulation start and end dates
                 YearMonth startDate = YearMonth.of(1985, 5);
-                YearMonth endDate = YearMonth.of(2024, 12);
-
-                // Calculate the number of months between the start and end dates
+                YearMonth endDate = lastMonth;
                 int totalMonths = (int) ChronoUnit.MONTHS.between(startDate, endDate);
-
-                // Run simulator for iteration
-                var sim = new WithdrawSimulator(INITIAL_BALANCE, MONTHLY_WITHDRAW, STOCK_ALLOCATION, STOCK_ALLOCATION, FIXED_YIELD, ANNUAL_INCREASE, startDate, endDate);
-                sim.runSimulation();
-
-                // Retrieve the results from the simulation
-                finalBalance = sim.getFinalAmount();
-                totalContribution = sim.getTotalWithdrawal();
-                avgMonthlyContribution = totalContribution / totalMonths; // Use dynamic totalMonths
-
-            }
-
-            // Write the variable along with results
-            writer.write(String.format("%d\t%.2f\t%.2f\t%.2f%n", years, finalBalance, totalContribution, avgMonthlyContribution));
-        }
-    }
-
-    private static void runWithdrawalExperiment(FileWriter writer) throws IOException {
-        writer.write("\nTesting Withdraw Amount:\n");
-        for (double withdraws : MONTHLY_WITHDRAWS) {
-            double finalBalance = 0;
-            double totalContribution = 0;
-            double avgMonthlyContribution = 0;
-            for (int i = 0; i < RUNS; i++) {
-                // Run simulator for iteration
-                WithdrawSimulator sim = new WithdrawSimulator(INITIAL_BALANCE, withdraws / 100, STOCK_ALLOCATION, STOCK_ALLOCATION, FIXED_YIELD, ANNUAL_INCREASE, YearMonth.of(1985 + i, 5), YearMonth.of(2015 + i, 5));
-                sim.runSimulation();
-
-                // Tally up sums
-                finalBalance += sim.getFinalAmount();
-                totalContribution += sim.getTotalWithdrawal();
-            }
-
-            // Averaging values
-            finalBalance /= RUNS;
-            totalContribution /= RUNS;
-            avgMonthlyContribution = totalContribution / (12 * YEAR_SPAN); // (MONTH * YEAR SPAN)
-
-            // Write the variable along with results
-            writer.write(String.format("%.2f\t%.2f\t%.2f\t%.2f%n", withdraws, finalBalance, totalContribution, avgMonthlyContribution));
-        }
-    }
-
-    private static void runIncreaseExperiment(FileWriter writer) throws IOException {
-        writer.write("\nTesting Annual Increase:\n");
-        for (double increase : INCREASES) {
-            double finalBalance = 0;
-            double totalContribution = 0;
-            double avgMonthlyContribution = 0;
-            for (int i = 0; i < RUNS; i++) {
-                // Run simulator for iteration
-                WithdrawSimulator sim = new WithdrawSimulator(INITIAL_BALANCE, MONTHLY_WITHDRAW, STOCK_ALLOCATION, STOCK_ALLOCATION, FIXED_YIELD, increase, YearMonth.of(1985 + i, 5), YearMonth.of(2015 + i, 5));
-                sim.runSimulation();
-
-                // Tally up sums
-                finalBalance += sim.getFinalAmount();
-                totalContribution += sim.getTotalWithdrawal();
-            }
-
-            // Averaging values
-            finalBalance /= RUNS;
-            totalContribution /= RUNS;
-            avgMonthlyContribution = totalContribution / (12 * YEAR_SPAN); // (MONTH * YEAR SPAN)
-
-            // Write the variable along with results
-            writer.write(String.format("%.2f\t%.2f\t%.2f\t%.2f%n", increase, finalBalance, totalContribution, avgMonthlyContribution));
-        }
-    }
-
-    private static void runInitialBalanceExperiment(FileWriter writer) throws IOException {
-        writer.write("\nTesting Initial Balance:\n");
-        for (double initial : INITIAL_AMOUNTS) {
-            double finalBalance = 0;
-            double totalContribution = 0;
-            double avgMonthlyContribution = 0;
-            for (int i = 0; i < RUNS; i++) {
-                // Run simulator for iteration
-                WithdrawSimulator sim = new WithdrawSimulator(initial, MONTHLY_WITHDRAW, STOCK_ALLOCATION, STOCK_ALLOCATION, FIXED_YIELD, ANNUAL_INCREASE, YearMonth.of(1985 + i, 5), YearMonth.of(2015 + i, 5));
-                sim.runSimulation();
-
-                // Tally up sums
-                finalBalance += sim.getFinalAmount();
-                totalContribution += sim.getTotalWithdrawal();
-            }
-
-            // Averaging values
-            finalBalance /= RUNS;
-            totalContribution /= RUNS;
-            avgMonthlyContribution = totalContribution / (12 * YEAR_SPAN); // (MONTH * YEAR SPAN)
-
-            // Write the variable along with results
-            writer.write(String.format("%.2f\t%.2f\t%.2f\t%.2f%n", initial, finalBalance, totalContribution, avgMonthlyContribution));
-        }
-    }
-
-    private static void runYieldExperiment(FileWriter writer) throws IOException {
-        writer.write("\nTesting Yield:\n");
-        for (double yield : YIELDS) {
-            double finalBalance = 0;
-            double totalContribution = 0;
-            double avgMonthlyContribution = 0;
-            for (int i = 0; i < RUNS; i++) {
-                // Run simulator for iteration
-                WithdrawSimulator sim = new WithdrawSimulator(INITIAL_BALANCE, MONTHLY_WITHDRAW, STOCK_ALLOCATION, STOCK_ALLOCATION, yield, ANNUAL_INCREASE, YearMonth.of(1985 + i, 5), YearMonth.of(2015 + i, 5));
-                sim.runSimulation();
-
-                // Tally up sums
-                finalBalance += sim.getFinalAmount();
-                totalContribution += sim.getTotalWithdrawal();
-            }
-
-            // Averaging values
-            finalBalance /= RUNS;
-            totalContribution /= RUNS;
-            avgMonthlyContribution = totalContribution / (12 * YEAR_SPAN); // (MONTH * YEAR SPAN)
-
-            // Write the variable along with results
-            writer.write(String.format("%.2f\t%.2f\t%.2f\t%.2f%n", yield, finalBalance, totalContribution, avgMonthlyContribution));
-        }
-    }
-
-    private static void runGlideExperiment(FileWriter writer) throws IOException {
-        writer.write("\nTesting Glide Path:\n");
-        for (double eStock : ALLOCATION_PERCENTS) {
-            double finalBalance = 0;
-            double totalContribution = 0;
-            double avgMonthlyContribution = 0;
-            for (int i = 0; i < RUNS; i++) {
-                // Run simulator for iteration
-                WithdrawSimulator sim = new WithdrawSimulator(INITIAL_BALANCE, MONTHLY_WITHDRAW, 0.60, eStock / 100, FIXED_YIELD, ANNUAL_INCREASE, YearMonth.of(1985 + i, 5), YearMonth.of(2015 + i, 5));
-                sim.runSimulation();
-
-                // Tally up sums
-                finalBalance += sim.getFinalAmount();
-                totalContribution += sim.getTotalWithdrawal();
+                spec.row(Integer.toString(years), List.of(base.withDates(startDate, endDate)), totalMonths);
             }
-
-            // Averaging values
-            finalBalance /= RUNS;
-            totalContribution /= RUNS;
-            avgMonthlyContribution = totalContribution / (12 * YEAR_SPAN); // (MONTH * YEAR SPAN)
-
-            // Write the variable along with results
-            writer.write(String.format("%.2f\t%.2f\t%.2f\t%.2f%n", eStock, finalBalance, totalContribution, avgMonthlyContribution));
         }
-    }
-
-    private static void runSpecialExperiment(FileWriter writer) throws IOException {
-        writer.write("\nTesting Special Periods:\n");
 
-        // Define start and end dates for special periods
+        spec.section("Testing Withdraw Amount:")
+                .sweep(MONTHLY_WITHDRAWS, (config, withdraws) -> config.withFlow(withdraws / 100));
+        spec.section("Testing Annual Increase:")
+                .sweep(INCREASES, SimulationConfig::withAnnualIncrease);
+        spec.section("Testing Initial Balance:")
+                .sweep(INITIAL_AMOUNTS, SimulationConfig::withStartAmount);
+        spec.section("Testing Yield:")
+                .sweep(YIELDS, SimulationConfig::withFixedYield);
+        spec.section("Testing Glide Path:")
+                .sweep(ALLOCATION_PERCENTS, (config, eStock) -> config.withAllocation(0.60, eStock / 100));
+
+        // Special periods, the per month column is over the whole years of the period
         YearMonth[] startDates = {YearMonth.of(2000, 5), YearMonth.of(2000, 5),
                 YearMonth.of(2007, 5), YearMonth.of(2009, 5)};
         YearMonth[] endDates = {YearMonth.of(2012, 5), YearMonth.of(2009, 5),
                 YearMonth.of(2017, 5), YearMonth.of(2019, 5)};
-
-        // Loop over each special period
+        spec.section("Testing Special Periods:");
         for (int i = 0; i < startDates.length; i++) {
-            // Calculate YEAR_SPAN dynamically
             int yearSpan = endDates[i].getYear() - startDates[i].getYear();
-
-            // Run simulator for iteration
-            WithdrawSimulator sim = new WithdrawSimulator(INITIAL_BALANCE, MONTHLY_WITHDRAW, STOCK_ALLOCATION, STOCK_ALLOCATION, FIXED_YIELD, ANNUAL_INCREASE, YearMonth.of(1985 + i, 5), YearMonth.of(2015 + i, 5));
-            sim.runSimulation();
-
-            // Retrieve the results from the simulation
-            double finalBalance = sim.getFinalAmount();
-            double totalContribution = sim.getTotalWithdrawal();
-            double avgMonthlyContribution = totalContribution / (12 * yearSpan); // (MONTH * YEAR SPAN)
-
-            // Write the results to the file, formatted to two decimal places
-            writer.write(String.format("%s - %s\t%.2f\t%.2f\t%.2f%n", startDates[i], endDates[i], finalBalance, totalContribution, avgMonthlyContribution));
+            // Row i has always been simulated over the i-th 30 year window rather than the period it is labelled with
+            List<YearMonth[]> windows = new ArrayList<>();
+            windows.add(new YearMonth[]{YearMonth.of(1985 + i, 5), YearMonth.of(2015 + i, 5)});
+            spec.row(startDates[i] + " - " + endDates[i], base, windows, 12 * yearSpan);
         }
 
+        return spec.build();
     }
 }
-
-
-
-
-
-
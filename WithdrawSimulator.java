@@ -2,12 +2,12 @@ package symposium;
 
 import java.awt.*;
 import java.time.YearMonth;
-import java.util.List;
 import javax.swing.*;
 
 public class WithdrawSimulator extends ParentSimulator {
     double withdrawal;
     double withdrawnTotal = 0;
+    boolean bankrupt = false;
 
     public WithdrawSimulator(double startAmount, double annualWithdrawalPercentage, double startAlloc, double endAlloc,
                              double fixedYield, double annualIncrease, YearMonth startDate, YearMonth endDate) {
@@ -17,6 +17,20 @@ public class WithdrawSimulator extends ParentSimulator {
         withdrawal = annualWithdrawalPercentage / 12;
     }
 
+    // Unarmed simulator for reuse, call reset() before running it
+    public WithdrawSimulator() {
+    }
+
+    // Re-arms this simulator for a new run instead of building a new one
+    public WithdrawSimulator reset(double startAmount, double annualWithdrawalPercentage, double startAlloc, double endAlloc,
+                                   double fixedYield, double annualIncrease, YearMonth startDate, YearMonth endDate) {
+        reset(startAmount, startAlloc, endAlloc, fixedYield, annualIncrease, startDate, endDate);
+        withdrawal = annualWithdrawalPercentage / 12;
+        withdrawnTotal = 0;
+        bankrupt = false;
+        return this;
+    }
+
     // Figure out what to take from based on allocation
     public void allocateWithdrawal() {
         double realTimeAllocation = stockBalance / (stockBalance + fixedBalance);
@@ -32,6 +46,7 @@ public class WithdrawSimulator extends ParentSimulator {
         }
 
         withdrawnTotal += realTimeWithdrawal;
+        listener.withdrawal(this, realTimeWithdrawal);
     }
 
     // Increase annual withdrawal
@@ -42,7 +57,7 @@ public class WithdrawSimulator extends ParentSimulator {
     // Print formatted monthly update of values
     public void printValues() {
         System.out.printf("Date: %s | Stock: %.2f | Fixed: %.2f | Allocation: %.2f/%.2f | Withdrawal: %.4f | Saved Total: %.2f | Total Withdrawn: %.2f%n",
-                currentDate.format(formatter), stockBalance, fixedBalance, allocation * 100, (1 - allocation) * 100, withdrawal, fixedBalance + stockBalance, withdrawnTotal);
+                getCurrentDate().format(formatter), stockBalance, fixedBalance, allocation * 100, (1 - allocation) * 100, withdrawal, fixedBalance + stockBalance, withdrawnTotal);
     }
 
     // Gets called if both stock and fixed balances are in debt, repays it with the withdrawn total
@@ -53,69 +68,96 @@ public class WithdrawSimulator extends ParentSimulator {
 
         fixedBalance = 0;
         stockBalance = 0;
+        bankrupt = true;
+        listener.bankruptcy(this, debt);
     }
 
 
-    // Run simulation
-    public void runSimulation() {
-        // Setup to be run once
+    // Setup to be run once
+    public void startSimulation() {
         adjustAllocation();
         rebalance();
         allocateWithdrawal();
-        printValues();
+        listener.monthStepped(this);
         nextMonth();
+    }
 
-        // Main simulation loop
-        while (currentDate.isBefore(endDate) || currentDate.equals(endDate)) {
-            YearMonth previousMonth = currentDate.minusMonths(1);
-            double percentChange = 0;
-            try {
-                // Calculate the percent change in stock price for the current month
-                percentChange = stockData.calculatePercentChange(currentDate, previousMonth);
-            } catch (IllegalArgumentException e) {
-                System.out.println("Stock data not available for the specified months.");
-                break;
-            }
+    // Setup for a withdrawal phase that continues an accumulation, in place of startSimulation(). The
+    // accumulation has to be simulated through this start date and not finished, so its stock and
+    // fixed income balances are taken as they drifted instead of being rebalanced to startAlloc; the
+    // next January rebalances as usual.
+    public void startFrom(SimulatorSnapshot accumulation) {
+        if (accumulation.isWithdrawing() || !accumulation.getCurrentDate().equals(startDate.plusMonths(1))) {
+            throw new IllegalArgumentException("The accumulation has to be simulated up to "
+                    + startDate.format(formatter) + ".");
+        }
+        stockBalance = accumulation.stockBalance;
+        fixedBalance = accumulation.fixedBalance;
+        adjustAllocation();
+        allocateWithdrawal();
+        listener.monthStepped(this);
+        nextMonth();
+    }
 
-            applyStockMarket(percentChange);
+    // One month with everything fused into a single pass over locals
+    public boolean stepMonth(double percentChange) {
+        if (historicalRates) {
+            updateRates();
+        }
 
-            // Actions to be performed every January
-            if (currentDate.getMonthValue() == 1) {
-                adjustAllocation();
-                rebalance();
-                increaseWithdrawal();
-            }
+        double stock = stockBalance * (1 + percentChange / 100);
+        double fixed = fixedBalance;
+
+        // Actions to be performed every January
+        if (calendarMonth == 1) {
+            stockBalance = stock;
+            adjustAllocation();
+            rebalance();
+            increaseWithdrawal();
+            stock = stockBalance;
+            fixed = fixedBalance;
+        }
+
+        // Actions to be performed every month
+        if (calendarMonth % 3 == 0) {
+            stock *= (1 + dividend / 4);  // Quarterly dividend
+        }
+        fixed *= (1 + (fixedYield / 12 / 100));
+
+        // Take the withdrawal from whichever side is over its allocation
+        double total = stock + fixed;
+        double realTimeAllocation = stock / total;
+        double realTimeWithdrawal = withdrawal * total;
+        if (realTimeAllocation < allocation)      // Not enough stock
+            fixed -= realTimeWithdrawal;
+        else if (realTimeAllocation > allocation) // Not enough fixed
+            stock -= realTimeWithdrawal;
+        else {                                    // Perfect
+            fixed -= realTimeWithdrawal * (1 - allocation);
+            stock -= realTimeWithdrawal * allocation;
+        }
+        withdrawnTotal += realTimeWithdrawal;
+
+        stockBalance = stock;
+        fixedBalance = fixed;
+        listener.withdrawal(this, realTimeWithdrawal);
+
+        // Check for bankruptcy if something goes below zero
+        if (fixed < 0 || stock < 0) {
+            // First, try to emergency rebalance and fix the issue
+            rebalance();
 
-            // Actions to be performed every month
-            dividend(); // Checks month in method
-            applyFixedIncomeYield();
-            allocateWithdrawal();
-
-            // Check for bankruptcy if something goes below zero
-            if (fixedBalance < 0 || stockBalance < 0) {
-                // First, try to emergency rebalance and fix the issue
-                rebalance();
-
-                // If both are in debt, shut down
-                if (fixedBalance < 0 && stockBalance < 0) {
-                    bankruptcy();
-                    System.out.println("Out of money!");
-                    break;
-                }
+            // If both are in debt, shut down
+            if (fixedBalance < 0 && stockBalance < 0) {
+                bankruptcy();
+                return false;
             }
-            // Update logged data
-            dates.add(currentDate);
-            stockBalances.add(stockBalance);
-            fixedBalances.add(fixedBalance);
-            printValues();
-            nextMonth();
         }
-        // Rebalance neatly for the end
-        allocation = endAlloc;
-        rebalance();
-        printValues();
-        // Display graph
-        //SwingUtilities.invokeLater(this::displayChart);
+
+        recordHistory();
+        listener.monthStepped(this);
+        nextMonth();
+        return true;
     }
 
     public double getFinalAmount() {
@@ -126,29 +168,47 @@ public class WithdrawSimulator extends ParentSimulator {
         return withdrawnTotal;
     }
 
+    public double getTotalFlow() {
+        return withdrawnTotal;
+    }
+
+    public boolean isBankrupt() {
+        return bankrupt;
+    }
+
+    boolean isWithdrawing() {
+        return true;
+    }
+
+    double getFlow() {
+        return withdrawal;
+    }
+
+    void restoreFlow(double flow, double flowTotal, boolean bankrupt) {
+        withdrawal = flow;
+        withdrawnTotal = flowTotal;
+        this.bankrupt = bankrupt;
+    }
+
     private void displayChart() {
         JFrame frame = new JFrame("Investment Growth");
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         frame.setSize(800, 1000);
-        frame.add(new InvestSimulator.GraphPanel(dates, stockBalances, fixedBalances));
+        frame.add(new InvestSimulator.GraphPanel(history));
         frame.setVisible(true);
     }
 
     static class GraphPanel extends JPanel {
-        List<YearMonth> dates;
-        List<Double> stockBalances;
-        List<Double> fixedBalances;
-
-        GraphPanel(List<YearMonth> dates, List<Double> stockBalances, List<Double> fixedBalances) {
-            this.dates = dates;
-            this.stockBalances = stockBalances;
-            this.fixedBalances = fixedBalances;
+        HistoryRecorder history;
+
+        GraphPanel(HistoryRecorder history) {
+            this.history = history;
         }
 
         @Override
         protected void paintComponent(Graphics g) {
             super.paintComponent(g);
-            if (dates.isEmpty() || stockBalances.isEmpty() || fixedBalances.isEmpty()) {
+            if (history == null || history.size() == 0) {
                 return; // Prevent division by zero if no data exists
             }
 
@@ -162,9 +222,9 @@ public class WithdrawSimulator extends ParentSimulator {
             int graphHeight = height - 2 * padding;
 
 
-            double maxBalance = stockBalances.stream().max(Double::compareTo).orElse(1.0) + fixedBalances.stream().max(Double::compareTo).orElse(1.0);
+            double maxBalance = history.getMaxStockBalance() + history.getMaxFixedBalance();
 
-            int numBars = dates.size();
+            int numBars = history.size();
             if (numBars == 0) return;
 
             int barWidth = graphWidth / (numBars * 2);
@@ -178,7 +238,7 @@ public class WithdrawSimulator extends ParentSimulator {
                 int xFixed = xStock + barWidth;
 
 
-                int stockBarHeight = (int) (((stockBalances.get(i) + fixedBalances.get(i)) / maxBalance) * graphHeight);
+                int stockBarHeight = (int) ((history.getTotal(i) / maxBalance) * graphHeight);
 
 
 
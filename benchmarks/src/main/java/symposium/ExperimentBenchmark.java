@@ -0,0 +1,45 @@
+package symposium;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// The full InvestmentExperiment suite without writing the results file
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MINUTES)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExperimentBenchmark {
+
+    @Param({"1", "0"})  // 0 means one worker per core
+    int parallelism;
+
+    ExperimentExecutor executor;
+
+    @Setup
+    public void setup() {
+        executor = new ExperimentExecutor(parallelism == 0 ? Runtime.getRuntime().availableProcessors() : parallelism);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.close();
+    }
+
+    @Benchmark
+    public String investmentExperiment() {
+        return InvestmentExperiment.runAllExperiments(executor);
+    }
+}
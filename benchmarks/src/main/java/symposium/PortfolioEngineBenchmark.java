@@ -0,0 +1,87 @@
+package symposium;
+
+import java.time.YearMonth;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// One 30-year PortfolioEngine run with two and with six asset classes, and the same two-asset run on the
+// reused InvestSimulator, so the cost of more assets and of the vector loop over the fused step both show
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PortfolioEngineBenchmark {
+
+    static final YearMonth START_DATE = SimulatorBenchmark.START_DATE;
+    static final YearMonth END_DATE = SimulatorBenchmark.END_DATE;
+
+    static final double[] TWO_WEIGHTS = {0.80, 0.20};
+    static final double[] SIX_WEIGHTS = {0.40, 0.15, 0.15, 0.10, 0.10, 0.10};
+
+    PortfolioEngine twoAssets = new PortfolioEngine(List.of(
+            PortfolioEngine.Asset.market("Stocks", ParentSimulator.DEFAULT_DIVIDEND),
+            PortfolioEngine.Asset.fixedIncome("Fixed income", 2.0)));
+    PortfolioEngine sixAssets = new PortfolioEngine(List.of(
+            PortfolioEngine.Asset.market("Stocks", ParentSimulator.DEFAULT_DIVIDEND),
+            PortfolioEngine.Asset.series("Small caps", scaledReturns(1.3), 0.01),
+            PortfolioEngine.Asset.series("International", scaledReturns(0.9), 0.025),
+            PortfolioEngine.Asset.series("Real estate", scaledReturns(0.7), 0.04),
+            PortfolioEngine.Asset.fixedIncome("Bonds", 3.0),
+            PortfolioEngine.Asset.fixedIncome("Cash", 1.0)));
+    InvestSimulator reusedInvest = new InvestSimulator();
+    WithdrawSimulator reusedWithdraw = new WithdrawSimulator();
+
+    // Stand-in series for the extra asset classes, the loaded returns scaled so every asset moves differently
+    static double[] scaledReturns(double factor) {
+        double[] returns = StockData.getDefault().getMonthlyReturns();
+        for (int i = 0; i < returns.length; i++) {
+            returns[i] *= factor;
+        }
+        return returns;
+    }
+
+    @Benchmark
+    public double investTwoAssets() {
+        return twoAssets.reset(false, 0, 1000, TWO_WEIGHTS, TWO_WEIGHTS, 0, START_DATE, END_DATE).run().getFinalAmount();
+    }
+
+    @Benchmark
+    public double investSixAssets() {
+        return sixAssets.reset(false, 0, 1000, SIX_WEIGHTS, SIX_WEIGHTS, 0, START_DATE, END_DATE).run().getFinalAmount();
+    }
+
+    @Benchmark
+    public double investSimulator() {
+        InvestSimulator sim = reusedInvest.reset(0, 1000, 0.80, 0.80, 2.0, 0, START_DATE, END_DATE);
+        sim.runSimulation();
+        return sim.getFinalAmount();
+    }
+
+    @Benchmark
+    public double withdrawTwoAssets() {
+        return twoAssets.reset(true, 1_000_000, 0.04, TWO_WEIGHTS, TWO_WEIGHTS, 0, START_DATE, END_DATE).run().getFinalAmount();
+    }
+
+    @Benchmark
+    public double withdrawSixAssets() {
+        return sixAssets.reset(true, 1_000_000, 0.04, SIX_WEIGHTS, SIX_WEIGHTS, 0, START_DATE, END_DATE).run().getFinalAmount();
+    }
+
+    @Benchmark
+    public double withdrawSimulator() {
+        WithdrawSimulator sim = reusedWithdraw.reset(1_000_000, 0.04, 0.80, 0.80, 2.0, 0, START_DATE, END_DATE);
+        sim.runSimulation();
+        return sim.getFinalAmount();
+    }
+}
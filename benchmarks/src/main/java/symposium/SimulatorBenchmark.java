@@ -0,0 +1,76 @@
+package symposium;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.time.YearMonth;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// One 30-year run of each simulator with the experiment baseline parameters
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SimulatorBenchmark {
+
+    static final YearMonth START_DATE = YearMonth.of(1985, 5);
+    static final YearMonth END_DATE = YearMonth.of(2015, 5);
+
+    PrintStream originalOut;
+    InvestSimulator reusedInvest = new InvestSimulator();
+
+    // Console output goes to a null stream so the numbers show formatting and locking, not the terminal
+    @Setup(Level.Trial)
+    public void silenceConsole() {
+        originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown(Level.Trial)
+    public void restoreConsole() {
+        System.setOut(originalOut);
+    }
+
+    @Benchmark
+    public double investSimulator() {
+        InvestSimulator sim = new InvestSimulator(0, 1000, 0.80, 0.80, 2.0, 0, START_DATE, END_DATE);
+        sim.runSimulation();
+        return sim.getFinalAmount();
+    }
+
+    // Same run on one simulator re-armed with reset(), the way the experiment drivers pool them
+    @Benchmark
+    public double investSimulatorReset() {
+        InvestSimulator sim = reusedInvest.reset(0, 1000, 0.80, 0.80, 2.0, 0, START_DATE, END_DATE);
+        sim.runSimulation();
+        return sim.getFinalAmount();
+    }
+
+    @Benchmark
+    public double withdrawSimulator() {
+        WithdrawSimulator sim = new WithdrawSimulator(1_000_000, 0.04, 0.80, 0.80, 2.0, 0, START_DATE, END_DATE);
+        sim.runSimulation();
+        return sim.getFinalAmount();
+    }
+
+    @Benchmark
+    public double withdrawSimulatorConsole() {
+        WithdrawSimulator sim = new WithdrawSimulator(1_000_000, 0.04, 0.80, 0.80, 2.0, 0, START_DATE, END_DATE);
+        sim.setListener(new ConsoleSimulationListener(true));
+        sim.runSimulation();
+        return sim.getFinalAmount();
+    }
+}
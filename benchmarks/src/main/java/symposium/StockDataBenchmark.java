@@ -0,0 +1,47 @@
+package symposium;
+
+import java.time.YearMonth;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Cost of one monthly market lookup, through the YearMonth adapter and through the month index
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StockDataBenchmark {
+
+    StockData stockData;
+    YearMonth month;
+    YearMonth previousMonth;
+    int monthIndex;
+
+    @Setup
+    public void setup() {
+        stockData = StockData.getDefault();
+        month = YearMonth.of(2008, 10);
+        previousMonth = month.minusMonths(1);
+        monthIndex = stockData.indexOf(month);
+    }
+
+    @Benchmark
+    public double calculatePercentChange() {
+        return stockData.calculatePercentChange(month, previousMonth);
+    }
+
+    @Benchmark
+    public double getPercentChange() {
+        return stockData.getPercentChange(monthIndex);
+    }
+}
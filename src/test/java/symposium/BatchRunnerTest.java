@@ -0,0 +1,49 @@
+package symposium;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+class BatchRunnerTest {
+
+    private static final String[] INVEST_HEADER = BatchRunner.splitCsv(
+            "id,mode,start_amount,monthly_contribution,start_alloc,end_alloc,fixed_yield,annual_increase,start_date,end_date");
+
+    @Test
+    void quotedFieldsKeepCommasAndQuotes() {
+        assertArrayEquals(new String[] {"Smith, J", "invest", "say \"hi\"", ""},
+                BatchRunner.splitCsv("\"Smith, J\",invest,\"say \"\"hi\"\"\","));
+        assertArrayEquals(new String[] {"a", "b c", "", "d"}, BatchRunner.splitCsv(" a , b c ,, \"d\" "));
+        assertArrayEquals(new String[] {""}, BatchRunner.splitCsv(""));
+        assertArrayEquals(new String[] {" padded ", ","}, BatchRunner.splitCsv("\" padded \",\",\""));
+    }
+
+    @Test
+    void malformedQuotesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> BatchRunner.splitCsv("\"Smith, J,invest"));
+        assertThrows(IllegalArgumentException.class, () -> BatchRunner.splitCsv("\"Smith\" J,invest"));
+    }
+
+    @Test
+    void quotedIdWithACommaRunsInItsOwnColumn() {
+        BatchRunner.Outcome outcome = BatchRunner.runLine(
+                "\"Smith, J\",invest,0,1000,80,80,2,0,05/1985,05/2015", INVEST_HEADER, 2);
+        assertNull(outcome.error);
+        assertEquals("Smith, J", outcome.id);
+    }
+
+    @Test
+    void writtenIdsReadBack() {
+        for (String id : new String[] {"Smith, J", "the \"A\" team", "plain"}) {
+            BatchRunner.Outcome outcome = new BatchRunner.Outcome(id, "invest", new SimulationResult(1, 2, false), null, null);
+            String line = outcome.format(false);
+            String[] fields = BatchRunner.splitCsv(line.substring(0, line.length() - 1));
+            assertEquals(BatchRunner.CSV_HEADER.split(",").length, fields.length);
+            assertEquals(id, fields[0]);
+            assertEquals("invest", fields[1]);
+        }
+    }
+}
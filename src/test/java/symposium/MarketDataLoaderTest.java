@@ -0,0 +1,109 @@
+package symposium;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.YearMonth;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MarketDataLoaderTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsMonthsPricesAndSeries() {
+        StockData data = parse("month,price,dividend_yield\n01/2000, 100.5 ,1.5\r\n02/2000,101,1.25\n03/2000,99.25,2\n");
+        assertEquals(YearMonth.of(2000, 1), data.getFirstMonth());
+        assertEquals(3, data.getMonthCount());
+        assertEquals(100.5, data.getPrice(0));
+        assertEquals(99.25, data.getPrice(2));
+        assertTrue(data.hasDividendYields());
+        assertEquals(1.25, data.getDividendYield(1));
+    }
+
+    @Test
+    void longNumbersParseLikeParseDouble() {
+        StockData data = parse("01/2000,1234.56789012345678\n02/2000,0.1000000000000000055511151231257827\n");
+        assertEquals(1234.56789012345678, data.getPrice(0));
+        assertEquals(0.1, data.getPrice(1));
+    }
+
+    @Test
+    void malformedNumbersAreRejected() {
+        for (String price : new String[] {"12.3 4", "1 000", "12a", "1.2.3", ".", "-", "", " ", "1e5", "+5"}) {
+            assertRejected("01/2000,100\n02/2000," + price + "\n", "invalid price");
+        }
+        assertRejected("month,price,bond_yield\n01/2000,100,4 .5\n", "invalid bond_yield");
+    }
+
+    @Test
+    void gapsAndDuplicatesAreRejected() {
+        assertRejected("01/2000,100\n03/2000,101\n", "months missing before 03/2000");
+        assertRejected("01/2000,100\n02/2000,101\n02/2000,102\n", "02/2000 is a duplicate or out of order");
+        assertRejected("02/2000,100\n01/2000,101\n", "01/2000 is a duplicate or out of order");
+    }
+
+    @Test
+    void nonPositivePricesAreRejected() {
+        assertRejected("01/2000,100\n02/2000,0\n", "price must be positive");
+        assertRejected("01/2000,100\n02/2000,-5\n", "price must be positive");
+    }
+
+    @Test
+    void malformedMonthsAreRejected() {
+        assertRejected("01/2000,100\n13/2000,101\n", "expected MM/yyyy,price");
+        assertRejected("01/2000,100\n02/20,101\n", "expected MM/yyyy,price");
+        assertRejected("01/2000,100\nmonth,price\n", "expected MM/yyyy,price");
+    }
+
+    @Test
+    void binaryFileReadsBack() throws IOException {
+        StockData data = parse("month,price,cpi\n11/1999,100,1\n12/1999,110,1.01\n01/2000,99,1.02\n");
+        Path file = directory.resolve("data.smsd");
+        MarketDataLoader.writeBinary(data, file);
+
+        StockData loaded = MarketDataLoader.load(file);
+        assertEquals(data.getFirstMonth(), loaded.getFirstMonth());
+        assertArrayEquals(data.getPrices(), loaded.getPrices());
+        assertArrayEquals(data.getMonthlyReturns(), loaded.getMonthlyReturns());
+        assertArrayEquals(data.getCpiLevels(), loaded.getCpiLevels());
+        assertEquals(data.getVersion(), loaded.getVersion());
+    }
+
+    // A directory entry with the wrong width is reported like any other corrupt column
+    @Test
+    void wrongColumnWidthIsCorrupt() throws IOException {
+        StockData data = parse("01/2000,100\n02/2000,110\n03/2000,99\n");
+        Path file = directory.resolve("data.smsd");
+        for (int column = 0; column < 3; column++) {
+            MarketDataLoader.writeBinary(data, file);
+            int entry = MarketDataLoader.HEADER_SIZE + column * 16;
+            ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+            int id = bytes.getInt(entry);
+            bytes.putInt(entry + 4, id == MarketDataLoader.MONTH_COLUMN ? 8 : 4);
+            Files.write(file, bytes.array());
+
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> MarketDataLoader.load(file));
+            assertEquals(file + ": corrupt stock data column " + id, e.getMessage());
+        }
+    }
+
+    private static StockData parse(String csv) {
+        return MarketDataLoader.parseCsv(ByteBuffer.wrap(csv.getBytes(StandardCharsets.US_ASCII)), "test.csv");
+    }
+
+    private static void assertRejected(String csv, String message) {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> parse(csv));
+        assertTrue(e.getMessage().endsWith(": " + message), csv + " gave " + e.getMessage());
+    }
+}
@@ -0,0 +1,121 @@
+package symposium;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+// The monthly step exists in InvestSimulator, WithdrawSimulator, BatchSimulator and PortfolioEngine,
+// each shaped for its own use (see PortfolioEngine for why the simulators do not wrap the engine).
+// These checks keep the copies bit for bit equal, so an edit to one of them cannot silently change
+// what the others compute.
+class PortfolioEngineTest {
+
+    private static final int WINDOWS = 5000;
+
+    @Test
+    void twoAssetEngineMatchesTheSimulators() {
+        int bankruptRuns = 0;
+        for (SimulationConfig config : randomConfigs(new Random(7))) {
+            ParentSimulator sim = config.newSimulator();
+            sim.runSimulation();
+            PortfolioEngine engine = PortfolioEngine.twoAsset(config).run();
+
+            assertSame(sim.getFinalAmount(), engine.getFinalAmount(), config, "final amount");
+            assertSame(sim.getTotalFlow(), engine.getTotalFlow(), config, "total flow");
+            assertSame(sim.stockBalance, engine.getBalance(0), config, "stock balance");
+            assertSame(sim.fixedBalance, engine.getBalance(1), config, "fixed balance");
+            assertEquals(sim.isBankrupt(), engine.isBankrupt(), config.toString());
+            if (engine.isBankrupt()) {
+                bankruptRuns++;
+            }
+        }
+        assertTrue(bankruptRuns > 0, "no bankrupt withdrawal was checked");
+    }
+
+    @Test
+    void batchSimulatorMatchesTheSimulators() {
+        List<SimulationConfig> configs = randomConfigs(new Random(11));
+        for (boolean withdrawing : new boolean[]{false, true}) {
+            BatchSimulator batch = new BatchSimulator(withdrawing, configs.size());
+            List<SimulationConfig> lanes = new ArrayList<>();
+            for (SimulationConfig config : configs) {
+                if (config.isWithdrawing() == withdrawing) {
+                    batch.add(config.getStartAmount(), config.getFlow(), config.getStartAlloc(), config.getEndAlloc(),
+                            config.getFixedYield(), config.getAnnualIncrease(), config.getStartDate(), config.getEndDate());
+                    lanes.add(config);
+                }
+            }
+            batch.runSimulation();
+            for (int lane = 0; lane < lanes.size(); lane++) {
+                SimulationConfig config = lanes.get(lane);
+                ParentSimulator sim = config.newSimulator();
+                sim.runSimulation();
+                assertSame(sim.getFinalAmount(), batch.getFinalAmount(lane), config, "final amount");
+                assertSame(sim.getTotalFlow(), batch.getTotalFlow(lane), config, "total flow");
+                assertEquals(sim.isBankrupt(), batch.isBankrupt(lane), config.toString());
+            }
+        }
+    }
+
+    // Without returns or yields the balances are only the start amount and contributions split by weight
+    @Test
+    void contributionsFollowTheTargetWeights() {
+        PortfolioEngine engine = new PortfolioEngine(List.of(PortfolioEngine.Asset.fixedIncome("A", 0),
+                PortfolioEngine.Asset.fixedIncome("B", 0), PortfolioEngine.Asset.fixedIncome("C", 0)));
+        double[] weights = {0.5, 0.3, 0.2};
+        engine.reset(false, 1000, 100, weights, weights, 0, YearMonth.of(1990, 1), YearMonth.of(1999, 12)).run();
+
+        double total = 1000 + 100 * 120;
+        assertEquals(total, engine.getFinalAmount(), 1e-6);
+        for (int i = 0; i < weights.length; i++) {
+            assertEquals(total * weights[i], engine.getBalance(i), 1e-6);
+        }
+    }
+
+    // A run past the last month of data stops there and says so in the result instead of printing
+    @Test
+    void runPastTheDataIsFlagged() {
+        YearMonth lastMonth = StockData.getDefault().getLastMonth();
+        PortfolioEngine inside = PortfolioEngine.twoAsset(SimulationConfig.invest(0, 1000, 0.8, 0.8, 2, 0,
+                lastMonth.minusYears(10), lastMonth)).run();
+        assertFalse(inside.isDataEnded());
+
+        PortfolioEngine past = PortfolioEngine.twoAsset(SimulationConfig.invest(0, 1000, 0.8, 0.8, 2, 0,
+                lastMonth.minusYears(10), lastMonth.plusYears(5))).run();
+        assertTrue(past.isDataEnded());
+        assertEquals(inside.getTotalFlow(), past.getTotalFlow(), 1e-6);
+    }
+
+    // Windows inside the default data, a quarter of the withdrawals large enough to go bankrupt
+    private static List<SimulationConfig> randomConfigs(Random random) {
+        StockData stockData = StockData.getDefault();
+        List<SimulationConfig> configs = new ArrayList<>();
+        for (int k = 0; k < WINDOWS; k++) {
+            int months = 1 + random.nextInt(Math.min(480, stockData.getMonthCount() - 3));
+            YearMonth start = stockData.getFirstMonth().plusMonths(1 + random.nextInt(stockData.getMonthCount() - 2 - months));
+            YearMonth end = start.plusMonths(months);
+            double startAlloc = random.nextInt(4) == 0 ? random.nextInt(5) / 4.0 : random.nextDouble();
+            double endAlloc = random.nextInt(4) == 0 ? random.nextInt(5) / 4.0 : random.nextDouble();
+            double fixedYield = random.nextDouble() * 6;
+            boolean extreme = k % 4 == 0;
+            if (random.nextBoolean()) {
+                configs.add(SimulationConfig.withdraw(1_000_000 * random.nextDouble(), extreme ? 12 * random.nextDouble() : 0.6 * random.nextDouble(),
+                        startAlloc, endAlloc, fixedYield, extreme ? 60 * random.nextDouble() : 4 * random.nextDouble(), start, end));
+            } else {
+                configs.add(SimulationConfig.invest(10_000 * random.nextDouble(), 2000 * random.nextDouble(),
+                        startAlloc, endAlloc, fixedYield, 4 * random.nextDouble(), start, end));
+            }
+        }
+        return configs;
+    }
+
+    private static void assertSame(double expected, double actual, SimulationConfig config, String what) {
+        assertEquals(Double.doubleToLongBits(expected), Double.doubleToLongBits(actual), what + " of " + config);
+    }
+}
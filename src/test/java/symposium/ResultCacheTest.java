@@ -0,0 +1,114 @@
+package symposium;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+class ResultCacheTest {
+
+    @Test
+    void leastRecentlyUsedEntriesAreEvicted() {
+        ResultCache<Integer, Integer> cache = new ResultCache<>(2, Long.MAX_VALUE, value -> 1, () -> 0);
+        AtomicInteger computed = new AtomicInteger();
+        cache.get(1, key -> computed.incrementAndGet());
+        cache.get(2, key -> computed.incrementAndGet());
+        cache.get(1, key -> computed.incrementAndGet());
+        cache.get(3, key -> computed.incrementAndGet());
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        cache.get(1, key -> computed.incrementAndGet());
+        assertEquals(3, computed.get());
+        cache.get(2, key -> computed.incrementAndGet());
+        assertEquals(4, computed.get());
+    }
+
+    // A computation running while the cache is over its bounds keeps its entry, so it stays single-flight
+    @Test
+    void computingEntriesAreNotEvicted() throws Exception {
+        ResultCache<Integer, Integer> cache = new ResultCache<>(1, Long.MAX_VALUE, value -> 1, () -> 0);
+        AtomicInteger computed = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Integer> slow = CompletableFuture.supplyAsync(() -> cache.get(0, key -> {
+            started.countDown();
+            await(release);
+            return computed.incrementAndGet();
+        }));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        for (int key = 1; key <= 3; key++) {
+            cache.get(key, k -> -k);
+        }
+        release.countDown();
+        int value = slow.get(10, TimeUnit.SECONDS);
+
+        assertEquals(value, (int) cache.get(0, key -> computed.incrementAndGet()));
+        assertEquals(1, computed.get());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void waitersOnAFailedComputationAreNotHits() throws Exception {
+        ResultCache<Integer, Integer> cache = new ResultCache<>(10, Long.MAX_VALUE, value -> 1, () -> 0);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Integer> owner = CompletableFuture.supplyAsync(() -> cache.get(0, key -> {
+            started.countDown();
+            await(release);
+            throw new IllegalStateException("failed");
+        }));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        AtomicReference<RuntimeException> waiterFailure = new AtomicReference<>();
+        Thread waiter = new Thread(() -> {
+            try {
+                cache.get(0, key -> 1);
+            } catch (RuntimeException e) {
+                waiterFailure.set(e);
+            }
+        });
+        waiter.start();
+        // Parked in join() on the owner's entry
+        while (waiter.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+
+        assertThrows(ExecutionException.class, () -> owner.get(10, TimeUnit.SECONDS));
+        waiter.join(10_000);
+        assertEquals("failed", waiterFailure.get().getMessage());
+        assertEquals(0, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        assertEquals(7, (int) cache.get(0, key -> 7));
+        assertEquals(7, (int) cache.get(0, key -> 8));
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    void changedDataVersionDropsEverything() {
+        AtomicInteger version = new AtomicInteger();
+        ResultCache<Integer, Integer> cache = new ResultCache<>(10, Long.MAX_VALUE, value -> 1, version::get);
+        cache.get(1, key -> 1);
+        version.incrementAndGet();
+        assertEquals(2, (int) cache.get(1, key -> 2));
+        assertEquals(1, cache.getInvalidationCount());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package symposium;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Crash recovery of the result store: what a torn append, a damaged record, a lost or stale index
+// file and a compaction cut short leave on disk, and what reopening makes of it.
+class ResultStoreTest {
+
+    // Ten records per segment, so 25 records are two sealed segments and five in the active one
+    private static final long SMALL_SEGMENT = 10L * ResultStore.RECORD_BYTES;
+    private static final int RECORDS = 25;
+
+    @TempDir
+    Path directory;
+
+    private final StockData data = prices(240, -1);
+
+    @Test
+    void reopenedStoreReadsBackEveryResult() throws IOException {
+        fill();
+        try (ResultStore store = ResultStore.open(directory, SMALL_SEGMENT)) {
+            assertEquals(RECORDS, store.size());
+            assertEquals(3, store.getSegmentCount());
+            assertStored(store, 0, RECORDS);
+        }
+    }
+
+    @Test
+    void tornTailIsCutOffAndAppendingContinues() throws IOException {
+        fill();
+        // Half of the last record made it to disk
+        truncate(segment(3), 4L * ResultStore.RECORD_BYTES + ResultStore.RECORD_BYTES / 2);
+
+        try (ResultStore store = ResultStore.open(directory, SMALL_SEGMENT)) {
+            assertEquals(RECORDS - 1, store.size());
+            assertStored(store, 0, RECORDS - 1);
+            assertNull(store.get(config(RECORDS - 1), data));
+            assertEquals(4L * ResultStore.RECORD_BYTES, Files.size(segment(3)));
+            store.put(config(RECORDS - 1), data, result(RECORDS - 1));
+        }
+        try (ResultStore store = ResultStore.open(directory, SMALL_SEGMENT)) {
+            assertEquals(RECORDS, store.size());
+            assertStored(store, 0, RECORDS);
+        }
+    }
+
+    @Test
+    void damagedRecordCutsOffTheActiveSegmentThere() throws IOException {
+        fill();
+        // A flipped byte in the payload of the third record of the active segment fails its CRC
+        flipByte(segment(3), 2L * ResultStore.RECORD_BYTES + 20);
+
+        try (ResultStore store = ResultStore.open(directory, SMALL_SEGMENT)) {
+            assertEquals(22, store.size());
+            assertStored(store, 0, 22);
+            for (int i = 22; i < RECORDS; i++) {
+                assertNull(store.get(config(i), data));
+            }
+            assertEquals(2L * ResultStore.RECORD_BYTES, Files.size(segment(3)));
+        }
+    }
+
+    @Test
+    void missingIndexFileFallsBackToAScan() throws IOException {
+        fill();
+        Files.delete(index(1));
+        Files.delete(index(2));
+
+        try (ResultStore store = ResultStore.open(directory, SMALL_SEGMENT)) {
+            assertEquals(RECORDS, store.size());
+            assertStored(store, 0, RECORDS);
+        }
+    }
+
+    @Test
+    void indexFileThatDoesNotMatchItsSegmentIsIgnored() throws IOException {
+        fill();
+        // Damaged index of segment 1, and segment 2 lost its last record after its index was written
+        flipByte(index(1), 20);
+        truncate(segment(2), 9L * ResultStore.RECORD_BYTES);
+
+        try (ResultStore store = ResultStore.open(directory, SMALL_SEGMENT)) {
+            assertEquals(RECORDS - 1, store.size());
+            assertStored(store, 0, 19);
+            assertNull(store.get(config(19), data));
+            assertStored(store, 20, RECORDS);
+        }
+    }
+
+    @Test
+    void compactionCutShortLeavesReadableDuplicates() throws IOException {
+        fill();
+        Map<Path, byte[]> before = snapshotFiles();
+        try (ResultStore store = ResultStore.open(directory, SMALL_SEGMENT)) {
+            store.compact(data);
+        }
+        // A crash after the new segments were written but before the old ones were deleted
+        for (Map.Entry<Path, byte[]> file : before.entrySet()) {
+            Files.write(file.getKey(), file.getValue());
+        }
+
+        try (ResultStore store = ResultStore.open(directory, SMALL_SEGMENT)) {
+            assertEquals(6, store.getSegmentCount());
+            assertEquals(RECORDS, store.size());
+            assertStored(store, 0, RECORDS);
+            store.compact(data);
+            assertEquals(3, store.getSegmentCount());
+        }
+        try (ResultStore store = ResultStore.open(directory, SMALL_SEGMENT)) {
+            assertEquals(RECORDS, store.size());
+            assertStored(store, 0, RECORDS);
+        }
+    }
+
+    @Test
+    void compactionKeepsOnlyResultsOfTheCurrentData() throws IOException {
+        fill();
+        // New months at the end leave every range as it was, a changed month drops the runs that read it
+        StockData appended = prices(300, -1);
+        int changedMonth = 60;
+        StockData changed = prices(300, changedMonth);
+        try (ResultStore store = ResultStore.open(directory, SMALL_SEGMENT)) {
+            store.compact(appended);
+            assertEquals(RECORDS, store.size());
+
+            store.compact(changed);
+            int kept = 0;
+            for (int i = 0; i < RECORDS; i++) {
+                int first = changed.indexOf(config(i).getStartDate()) - 1;
+                int last = changed.indexOf(config(i).getEndDate());
+                if (changedMonth < first || changedMonth > last) {
+                    kept++;
+                    assertNotNull(store.get(config(i), changed), "result " + i);
+                } else {
+                    assertNull(store.get(config(i), changed), "result " + i);
+                }
+            }
+            assertEquals(kept, store.size());
+        }
+    }
+
+    private void fill() throws IOException {
+        try (ResultStore store = ResultStore.open(directory, SMALL_SEGMENT)) {
+            for (int i = 0; i < RECORDS; i++) {
+                store.put(config(i), data, result(i));
+            }
+        }
+    }
+
+    private void assertStored(ResultStore store, int from, int to) {
+        for (int i = from; i < to; i++) {
+            SimulationResult stored = store.get(config(i), data);
+            assertNotNull(stored, "result " + i);
+            assertEquals(result(i).getFinalAmount(), stored.getFinalAmount());
+            assertEquals(result(i).getTotalFlow(), stored.getTotalFlow());
+            assertEquals(result(i).isBankrupt(), stored.isBankrupt());
+        }
+    }
+
+    // Prices rising by one a month from 01/2000, changedMonth (if any) half a point off
+    private static StockData prices(int months, int changedMonth) {
+        double[] prices = new double[months];
+        for (int i = 0; i < months; i++) {
+            prices[i] = 100 + i + (i == changedMonth ? 0.5 : 0);
+        }
+        return StockData.fromPrices(YearMonth.of(2000, 1), prices);
+    }
+
+    private static SimulationConfig config(int i) {
+        YearMonth start = YearMonth.of(2000, 2).plusMonths(i * 3);
+        return SimulationConfig.invest(1000 + i, 100, 0.8, 0.6, 2, 0, start, start.plusMonths(12 + i));
+    }
+
+    private static SimulationResult result(int i) {
+        return new SimulationResult(10_000 + i, 1200 + i, i % 7 == 0);
+    }
+
+    private Path segment(int number) {
+        return directory.resolve(String.format("%06d.log", number));
+    }
+
+    private Path index(int number) {
+        return directory.resolve(String.format("%06d.idx", number));
+    }
+
+    private Map<Path, byte[]> snapshotFiles() throws IOException {
+        Map<Path, byte[]> files = new HashMap<>();
+        try (var list = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) list::iterator) {
+                files.put(file, Files.readAllBytes(file));
+            }
+        }
+        return files;
+    }
+
+    private static void truncate(Path file, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+        }
+    }
+
+    private static void flipByte(Path file, long position) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[(int) position] ^= 0x40;
+        Files.write(file, bytes);
+    }
+}